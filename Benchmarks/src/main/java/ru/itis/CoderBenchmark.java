@@ -0,0 +1,135 @@
+package ru.itis;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Encode and decode throughput of every coding mode on every corpus. The megabytes counter is reported per second,
+// which gives MB/s next to the operations per second, and the compression ratio is an event counter. File modes
+// code temporary files written once per trial. Coders and files are shared, so the benchmarks run in one thread
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(1)
+public class CoderBenchmark {
+
+    private static final double MEGABYTE = 1 << 20;
+
+    @Param({"HUFFMAN", "HUFFMAN_BINARY", "HUFFMAN_BINARY_PARALLEL", "HUFFMAN_INTERLEAVED", "HUFFMAN_CONTEXT", "ARITHMETIC",
+            "ARITHMETIC_BINARY", "BWT", "BWT_PARALLEL", "HAMMING", "TANS"})
+    public String mode;
+
+    @Param({"TEXT", "RANDOM", "REPETITIVE", "BINARY", "LARGE"})
+    public String corpus;
+
+    private Codec codec;
+    private CodingMode.FileCoder fileCoder;
+    private byte[] data;
+    private byte[] code;
+    private double compressionRatio;
+    private File file;
+    private File codeFile;
+    private File decodedFile;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Megabytes {
+
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+
+    }
+
+    // Code size over data size. JMH adds event counters up over threads and measurement iterations, so every
+    // one of them reports its share and the sum is the ratio itself
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Ratio {
+
+        public double compressionRatio;
+        private double share;
+
+        @Setup(Level.Iteration)
+        public void reset(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+            compressionRatio = 0;
+            share = 1.0 / ((long) iterationParams.getCount() * benchmarkParams.getThreads());
+        }
+
+        void set(double ratio) {
+            compressionRatio = ratio * share;
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        CodingMode codingMode = CodingMode.valueOf(mode);
+        data = Corpus.valueOf(corpus).generate();
+        codec = codingMode.createCodec();
+        byte[] decoded;
+        if (codec != null) {
+            code = codec.encode(data);
+            decoded = codec.decode(code);
+        } else {
+            fileCoder = codingMode.createFileCoder();
+            file = File.createTempFile("data", ".bin");
+            codeFile = File.createTempFile("code", ".bin");
+            decodedFile = File.createTempFile("decoded", ".bin");
+            Files.write(file.toPath(), data);
+            fileCoder.encode(file.getPath(), codeFile.getPath());
+            fileCoder.decode(codeFile.getPath(), decodedFile.getPath());
+            code = Files.readAllBytes(codeFile.toPath());
+            decoded = Files.readAllBytes(decodedFile.toPath());
+        }
+        // A benchmark of a broken coder is worthless
+        if (!Arrays.equals(decoded, data)) {
+            throw new IllegalStateException(mode + " does not restore " + corpus);
+        }
+        compressionRatio = (double) code.length / data.length;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File temporary : new File[]{file, codeFile, decodedFile}) {
+            if (temporary != null) {
+                temporary.delete();
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(Megabytes megabytes, Ratio ratio) throws IOException {
+        megabytes.megabytes += data.length / MEGABYTE;
+        ratio.set(compressionRatio);
+        if (codec == null) {
+            fileCoder.encode(file.getPath(), codeFile.getPath());
+            return null;
+        }
+        return codec.encode(data);
+    }
+
+    @Benchmark
+    public byte[] decode(Megabytes megabytes, Ratio ratio) throws IOException {
+        megabytes.megabytes += data.length / MEGABYTE;
+        ratio.set(compressionRatio);
+        if (codec == null) {
+            fileCoder.decode(codeFile.getPath(), decodedFile.getPath());
+            return null;
+        }
+        return codec.decode(code);
+    }
+
+}
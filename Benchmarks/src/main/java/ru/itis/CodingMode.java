@@ -0,0 +1,135 @@
+package ru.itis;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+// Coding modes under benchmark. Codec modes code byte arrays in memory, the two-pass modes of HuffmanCoder and
+// ArithmeticCoder only have methods over file paths and code files
+public enum CodingMode {
+
+    HUFFMAN,
+    HUFFMAN_BINARY,
+    HUFFMAN_BINARY_PARALLEL,
+    HUFFMAN_INTERLEAVED,
+    HUFFMAN_CONTEXT,
+    ARITHMETIC,
+    ARITHMETIC_BINARY,
+    BWT,
+    BWT_PARALLEL,
+    HAMMING,
+    TANS;
+
+    // Smaller than the default piece size, so that a 1 MB corpus already gives the workers several blocks
+    private static final int PARALLEL_PIECE_SIZE = 1 << 18;
+
+    public interface PathOperation {
+
+        void apply(String from, String to) throws IOException;
+
+    }
+
+    public static class FileCoder {
+
+        private final PathOperation encoder;
+        private final PathOperation decoder;
+
+        FileCoder(PathOperation encoder, PathOperation decoder) {
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+
+        public void encode(String filePath, String codeFilePath) throws IOException {
+            encoder.apply(filePath, codeFilePath);
+        }
+
+        public void decode(String codeFilePath, String filePath) throws IOException {
+            decoder.apply(codeFilePath, filePath);
+        }
+
+    }
+
+    // Null for the modes that work over file paths only
+    public Codec createCodec() {
+        switch (this) {
+            case HUFFMAN:
+                return new HuffmanCoder(1);
+            case ARITHMETIC:
+                return new ArithmeticCoder();
+            case BWT:
+                return new BurrowsWheelerTransformCoder();
+            case BWT_PARALLEL:
+                return parallelBurrowsWheelerTransform();
+            case HAMMING:
+                return new HammingCoder();
+            case TANS:
+                return new TansCoder();
+            default:
+                return null;
+        }
+    }
+
+    public FileCoder createFileCoder() {
+        switch (this) {
+            case HUFFMAN_BINARY: {
+                HuffmanCoder coder = new HuffmanCoder(1);
+                return new FileCoder(coder::encodeBinary, coder::decodeBinary);
+            }
+            case HUFFMAN_BINARY_PARALLEL: {
+                HuffmanCoder coder = new HuffmanCoder();
+                return new FileCoder(coder::encodeBinaryParallel, coder::decodeBinary);
+            }
+            case HUFFMAN_INTERLEAVED: {
+                HuffmanCoder coder = new HuffmanCoder(1);
+                return new FileCoder(coder::encodeInterleaved, coder::decodeInterleaved);
+            }
+            case HUFFMAN_CONTEXT: {
+                HuffmanCoder coder = new HuffmanCoder(1);
+                return new FileCoder(coder::encodeWithContext, coder::decodeWithContext);
+            }
+            case ARITHMETIC_BINARY: {
+                ArithmeticCoder coder = new ArithmeticCoder();
+                return new FileCoder(coder::encodeBinary, coder::decodeBinary);
+            }
+            default:
+                return null;
+        }
+    }
+
+    // Code of the data in this mode, file modes go through temporary files
+    public byte[] encode(byte[] data) throws IOException {
+        Codec codec = createCodec();
+        if (codec != null) {
+            return codec.encode(data);
+        }
+        File file = File.createTempFile("data", ".bin");
+        File codeFile = File.createTempFile("code", ".bin");
+        try {
+            Files.write(file.toPath(), data);
+            createFileCoder().encode(file.getPath(), codeFile.getPath());
+            return Files.readAllBytes(codeFile.toPath());
+        } finally {
+            file.delete();
+            codeFile.delete();
+        }
+    }
+
+    private static Codec parallelBurrowsWheelerTransform() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        BurrowsWheelerTransformCoder coder = new BurrowsWheelerTransformCoder(PARALLEL_PIECE_SIZE, processors, 2 * processors);
+        return new Codec() {
+            @Override
+            public void encode(InputStream in, OutputStream codeOut) throws IOException {
+                coder.encodeBinaryParallel(in, codeOut);
+            }
+
+            @Override
+            public void decode(InputStream codeIn, OutputStream out) throws IOException {
+                coder.decodeBinaryParallel(codeIn, out);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,27 @@
+package ru.itis;
+
+import java.io.IOException;
+
+// Prints code size over data size for every coding mode and corpus without timing anything, the benchmarks
+// report the same ratio as an event counter
+public class CompressionRatios {
+
+    public static void main(String[] args) throws IOException {
+        Corpus[] corpora = Corpus.values();
+        byte[][] data = new byte[corpora.length][];
+        System.out.printf("%-24s", "mode");
+        for (int i = 0; i < corpora.length; i++) {
+            data[i] = corpora[i].generate();
+            System.out.printf("%12s", corpora[i].name());
+        }
+        System.out.println();
+        for (CodingMode mode : CodingMode.values()) {
+            System.out.printf("%-24s", mode.name());
+            for (byte[] bytes : data) {
+                System.out.printf("%12.4f", (double) mode.encode(bytes).length / bytes.length);
+            }
+            System.out.println();
+        }
+    }
+
+}
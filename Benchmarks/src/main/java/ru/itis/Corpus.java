@@ -0,0 +1,86 @@
+package ru.itis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// Benchmark inputs: the bundled text and generated data with a fixed seed, so every run codes the same bytes
+public enum Corpus {
+
+    TEXT,
+    RANDOM,
+    REPETITIVE,
+    BINARY,
+    LARGE;
+
+    private static final int SIZE = 1 << 20;
+    private static final int LARGE_SIZE = 8 << 20;
+    private static final long SEED = 1L;
+
+    public byte[] generate() throws IOException {
+        switch (this) {
+            case TEXT:
+                return warAndPeace();
+            case RANDOM:
+                byte[] random = new byte[SIZE];
+                new Random(SEED).nextBytes(random);
+                return random;
+            case REPETITIVE:
+                return repeat("the quick brown fox jumps over the lazy dog ".getBytes(StandardCharsets.US_ASCII), SIZE);
+            case BINARY:
+                return binary();
+            default:
+                return large();
+        }
+    }
+
+    private static byte[] warAndPeace() throws IOException {
+        InputStream in = Corpus.class.getResourceAsStream("/WarAndPeace.txt");
+        if (in == null) {
+            throw new IOException("WarAndPeace.txt is not on the class path");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] repeat(byte[] pattern, int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = pattern[i % pattern.length];
+        }
+        return bytes;
+    }
+
+    // Records of a little-endian counter, a slowly drifting sample and a few flag bits, like a sensor log
+    private static byte[] binary() {
+        Random random = new Random(SEED);
+        byte[] bytes = new byte[SIZE];
+        int sample = 0;
+        for (int i = 0, record = 0; i + 8 <= SIZE; i += 8, record++) {
+            sample += random.nextInt(17) - 8;
+            bytes[i] = (byte) record;
+            bytes[i + 1] = (byte) (record >>> 8);
+            bytes[i + 2] = (byte) (record >>> 16);
+            bytes[i + 3] = (byte) (record >>> 24);
+            bytes[i + 4] = (byte) sample;
+            bytes[i + 5] = (byte) (sample >>> 8);
+            bytes[i + 6] = (byte) (random.nextInt(8) == 0 ? 1 : 0);
+            bytes[i + 7] = 0;
+        }
+        return bytes;
+    }
+
+    // Several megabytes of text, larger than the blocks of the block coders
+    private static byte[] large() throws IOException {
+        return repeat(warAndPeace(), LARGE_SIZE);
+    }
+
+}
@@ -0,0 +1,139 @@
+package ru.itis;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// FGK adaptive Huffman tree. Nodes are stored by their implicit number, so weights never decrease
+// with the index and the root is always the last node
+public class AdaptiveHuffmanTree {
+
+    public static final int END_OF_STREAM = 256;
+    private static final int ALPHABET_SIZE = 257;
+    private static final int SYMBOL_BITS = 9;
+    // Every symbol needs a leaf and an internal node, plus the NYT node
+    private static final int NODE_COUNT = 2 * ALPHABET_SIZE + 1;
+    private static final int ROOT = NODE_COUNT - 1;
+
+    private final long[] weights;
+    private final int[] parents;
+    private final int[] lefts;
+    private final int[] rights;
+    private final int[] symbols;
+    private final int[] leaves;
+    private final int[] path;
+    private int notYetTransmitted;
+
+    public AdaptiveHuffmanTree() {
+        weights = new long[NODE_COUNT];
+        parents = new int[NODE_COUNT];
+        lefts = new int[NODE_COUNT];
+        rights = new int[NODE_COUNT];
+        symbols = new int[NODE_COUNT];
+        leaves = new int[ALPHABET_SIZE];
+        path = new int[NODE_COUNT];
+        Arrays.fill(parents, -1);
+        Arrays.fill(lefts, -1);
+        Arrays.fill(rights, -1);
+        Arrays.fill(symbols, -1);
+        Arrays.fill(leaves, -1);
+        notYetTransmitted = ROOT;
+    }
+
+    public void encode(int symbol, BitOutputStream out) throws IOException {
+        int node = leaves[symbol];
+        boolean isNew = node == -1;
+        if (isNew) {
+            node = notYetTransmitted;
+        }
+        // Collect the path from the leaf up to the root and write it in reverse
+        int depth = 0;
+        for (; node != ROOT; node = parents[node]) {
+            path[depth++] = rights[parents[node]] == node ? 1 : 0;
+        }
+        while (depth > 0) {
+            out.writeBit(path[--depth]);
+        }
+        if (isNew) {
+            out.writeBits(symbol, SYMBOL_BITS);
+        }
+        update(symbol);
+    }
+
+    public int decode(BitInputStream in) throws IOException {
+        int node = ROOT;
+        while (lefts[node] != -1) {
+            node = in.readBit() == 0 ? lefts[node] : rights[node];
+        }
+        int symbol;
+        if (node == notYetTransmitted) {
+            symbol = (int) in.readBits(SYMBOL_BITS);
+            // A symbol sent as new must be in the alphabet and must not have been seen yet
+            if (symbol > END_OF_STREAM || leaves[symbol] != -1) {
+                throw new IOException("Incorrect code file");
+            }
+        } else {
+            symbol = symbols[node];
+        }
+        update(symbol);
+        return symbol;
+    }
+
+    private void update(int symbol) {
+        int node = leaves[symbol];
+        if (node == -1) {
+            // Split the NYT node into a new NYT node and a leaf for the symbol
+            int parent = notYetTransmitted;
+            int leaf = parent - 1;
+            notYetTransmitted = parent - 2;
+            lefts[parent] = notYetTransmitted;
+            rights[parent] = leaf;
+            parents[notYetTransmitted] = parent;
+            parents[leaf] = parent;
+            symbols[leaf] = symbol;
+            leaves[symbol] = leaf;
+            node = leaf;
+        }
+        while (node != -1) {
+            int leader = node;
+            while (leader + 1 < NODE_COUNT && weights[leader + 1] == weights[node]) {
+                leader++;
+            }
+            if (leader != node && leader != parents[node]) {
+                swap(node, leader);
+                node = leader;
+            }
+            weights[node]++;
+            node = parents[node];
+        }
+    }
+
+    // Exchanges the subtrees at two positions, positions keep their parents
+    private void swap(int first, int second) {
+        long weight = weights[first];
+        weights[first] = weights[second];
+        weights[second] = weight;
+        int symbol = symbols[first];
+        symbols[first] = symbols[second];
+        symbols[second] = symbol;
+        int left = lefts[first];
+        lefts[first] = lefts[second];
+        lefts[second] = left;
+        int right = rights[first];
+        rights[first] = rights[second];
+        rights[second] = right;
+        relink(first);
+        relink(second);
+    }
+
+    private void relink(int node) {
+        if (lefts[node] != -1) {
+            parents[lefts[node]] = node;
+            parents[rights[node]] = node;
+        } else if (symbols[node] != -1) {
+            leaves[symbols[node]] = node;
+        } else {
+            notYetTransmitted = node;
+        }
+    }
+
+}
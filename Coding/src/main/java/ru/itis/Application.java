@@ -4,13 +4,17 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
 
 public class Application {
 
     private static HuffmanCoder huffmanCoder;
     private static ArithmeticCoder arithmeticCoder;
+    private static TansCoder tansCoder;
     private static BurrowsWheelerTransformCoder burrowsWheelerTransformCoder;
     private static HammingCoder hammingCoder;
     private static String filePath;
@@ -25,6 +29,7 @@ public class Application {
         scanner = new Scanner(System.in);
         huffmanCoder = new HuffmanCoder();
         arithmeticCoder = new ArithmeticCoder();
+        tansCoder = new TansCoder();
         burrowsWheelerTransformCoder = new BurrowsWheelerTransformCoder();
         hammingCoder = new HammingCoder();
         String command;
@@ -44,24 +49,114 @@ public class Application {
                 case "huffman decode":
                     huffmanDecode();
                     break;
+                case "huffman binary encode":
+                    huffmanBinaryEncode();
+                    break;
+                case "huffman binary decode":
+                    huffmanBinaryDecode();
+                    break;
+                case "huffman parallel encode":
+                    huffmanParallelEncode();
+                    break;
+                case "huffman interleaved encode":
+                    huffmanInterleavedEncode();
+                    break;
+                case "huffman interleaved decode":
+                    huffmanInterleavedDecode();
+                    break;
+                case "huffman context encode":
+                    huffmanContextEncode();
+                    break;
+                case "huffman context decode":
+                    huffmanContextDecode();
+                    break;
+                case "huffman adaptive encode":
+                    huffmanAdaptiveEncode();
+                    break;
+                case "huffman adaptive decode":
+                    huffmanAdaptiveDecode();
+                    break;
                 case "arithmetic encode":
                     arithmeticEncode();
                     break;
                 case "arithmetic decode":
                     arithmeticDecode();
                     break;
+                case "arithmetic binary encode":
+                    arithmeticBinaryEncode();
+                    break;
+                case "arithmetic binary decode":
+                    arithmeticBinaryDecode();
+                    break;
+                case "arithmetic adaptive encode":
+                    arithmeticAdaptiveEncode();
+                    break;
+                case "arithmetic adaptive decode":
+                    arithmeticAdaptiveDecode();
+                    break;
+                case "tans encode":
+                    tansEncode();
+                    break;
+                case "tans decode":
+                    tansDecode();
+                    break;
                 case "bwt encode":
                     bwtEncode();
                     break;
                 case "bwt decode":
                     bwtDecode();
                     break;
+                case "bwt binary encode":
+                    bwtBinaryEncode();
+                    break;
+                case "bwt binary decode":
+                    bwtBinaryDecode();
+                    break;
+                case "bwt parallel encode":
+                    bwtParallelEncode();
+                    break;
+                case "bwt parallel decode":
+                    bwtParallelDecode();
+                    break;
                 case "hamming encode":
                     hammingEncode();
                     break;
                 case "hamming decode":
                     hammingDecode();
                     break;
+                case "hamming binary encode":
+                    hammingBinaryEncode();
+                    break;
+                case "hamming binary decode":
+                    hammingBinaryDecode();
+                    break;
+                case "hamming secded encode":
+                    hammingSecdedEncode();
+                    break;
+                case "hamming secded decode":
+                    hammingSecdedDecode();
+                    break;
+                case "hamming simulate":
+                    hammingSimulate();
+                    break;
+                case "pipeline encode":
+                    pipelineEncode();
+                    break;
+                case "pipeline decode":
+                    pipelineDecode();
+                    break;
+                case "container encode":
+                    containerEncode();
+                    break;
+                case "container decode":
+                    containerDecode();
+                    break;
+                case "container verify":
+                    containerVerify();
+                    break;
+                case "container read":
+                    containerRead();
+                    break;
                 case "compare":
                     compare();
                     break;
@@ -90,6 +185,60 @@ public class Application {
         System.out.println("Выполнено");
     }
 
+    private static void huffmanBinaryEncode() throws IOException {
+        printEncodeInvitation();
+        huffmanCoder.encodeBinary(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void huffmanParallelEncode() throws IOException {
+        printEncodeInvitation();
+        huffmanCoder.encodeBinaryParallel(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void huffmanInterleavedEncode() throws IOException {
+        printEncodeInvitation();
+        huffmanCoder.encodeInterleaved(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void huffmanInterleavedDecode() throws IOException {
+        printDecodeInvitation();
+        huffmanCoder.decodeInterleaved(codeFilePath, filePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void huffmanContextEncode() throws IOException {
+        printEncodeInvitation();
+        huffmanCoder.encodeWithContext(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void huffmanContextDecode() throws IOException {
+        printDecodeInvitation();
+        huffmanCoder.decodeWithContext(codeFilePath, filePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void huffmanAdaptiveEncode() throws IOException {
+        printEncodeInvitation();
+        huffmanCoder.encodeAdaptive(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void huffmanAdaptiveDecode() throws IOException {
+        printDecodeInvitation();
+        huffmanCoder.decodeAdaptive(codeFilePath, filePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void huffmanBinaryDecode() throws IOException {
+        printDecodeInvitation();
+        huffmanCoder.decodeBinary(codeFilePath, filePath);
+        System.out.println("Выполнено");
+    }
+
     private static void arithmeticEncode() throws IOException {
         printEncodeInvitation();
         arithmeticCoder.encode(filePath, codeFilePath);
@@ -102,6 +251,42 @@ public class Application {
         System.out.println("Выполнено");
     }
 
+    private static void arithmeticBinaryEncode() throws IOException {
+        printEncodeInvitation();
+        arithmeticCoder.encodeBinary(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void arithmeticBinaryDecode() throws IOException {
+        printDecodeInvitation();
+        arithmeticCoder.decodeBinary(codeFilePath, filePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void arithmeticAdaptiveEncode() throws IOException {
+        printEncodeInvitation();
+        arithmeticCoder.encodeAdaptive(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void arithmeticAdaptiveDecode() throws IOException {
+        printDecodeInvitation();
+        arithmeticCoder.decodeAdaptive(codeFilePath, filePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void tansEncode() throws IOException {
+        printEncodeInvitation();
+        tansCoder.encode(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void tansDecode() throws IOException {
+        printDecodeInvitation();
+        tansCoder.decode(codeFilePath, filePath);
+        System.out.println("Выполнено");
+    }
+
     private static void bwtEncode() throws IOException {
         printEncodeInvitation();
         burrowsWheelerTransformCoder.encode(filePath, codeFilePath);
@@ -114,6 +299,30 @@ public class Application {
         System.out.println("Выполнено");
     }
 
+    private static void bwtBinaryEncode() throws IOException {
+        printEncodeInvitation();
+        burrowsWheelerTransformCoder.encodeBinary(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void bwtBinaryDecode() throws IOException {
+        printDecodeInvitation();
+        burrowsWheelerTransformCoder.decodeBinary(codeFilePath, filePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void bwtParallelEncode() throws IOException {
+        printEncodeInvitation();
+        burrowsWheelerTransformCoder.encodeBinaryParallel(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void bwtParallelDecode() throws IOException {
+        printDecodeInvitation();
+        burrowsWheelerTransformCoder.decodeBinaryParallel(codeFilePath, filePath);
+        System.out.println("Выполнено");
+    }
+
     private static void hammingEncode() throws IOException {
         printEncodeInvitation();
         hammingCoder.encode(filePath, codeFilePath);
@@ -126,6 +335,186 @@ public class Application {
         System.out.println("Выполнено");
     }
 
+    private static void hammingBinaryEncode() throws IOException {
+        printEncodeInvitation();
+        hammingCoder.encodeBinary(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void hammingBinaryDecode() throws IOException {
+        printDecodeInvitation();
+        printReport(hammingCoder.decodeBinary(codeFilePath, filePath));
+        System.out.println("Выполнено");
+    }
+
+    private static void hammingSecdedEncode() throws IOException {
+        printEncodeInvitation();
+        hammingCoder.encodeSecded(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void hammingSecdedDecode() throws IOException {
+        printDecodeInvitation();
+        printReport(hammingCoder.decodeSecded(codeFilePath, filePath));
+        System.out.println("Выполнено");
+    }
+
+    private static void hammingSimulate() throws IOException {
+        System.out.println("Введите код (hamming или secded):");
+        boolean secded = scanner.nextLine().trim().equals("secded");
+        System.out.println("Введите размер данных в мегабайтах:");
+        int size = (int) (Double.parseDouble(scanner.nextLine().trim()) * (1 << 20));
+        System.out.println("Введите вероятность ошибки в бите:");
+        double bitErrorRate = Double.parseDouble(scanner.nextLine().trim());
+        System.out.println("Введите вероятность начала пакета ошибок в бите:");
+        double burstRate = Double.parseDouble(scanner.nextLine().trim());
+        System.out.println("Введите длину пакета ошибок в битах:");
+        int burstLength = Integer.parseInt(scanner.nextLine().trim());
+        System.out.println("Введите глубину перемежения (1 - без перемежения):");
+        int depth = Integer.parseInt(scanner.nextLine().trim());
+        byte[] data = new byte[size];
+        new Random(1).nextBytes(data);
+        NoisyChannel channel = NoisyChannel.builder()
+                .bitErrorRate(bitErrorRate)
+                .burstRate(burstRate)
+                .burstLength(burstLength)
+                .seed(System.nanoTime())
+                .build();
+        ChannelSimulationReport report = new HammingCoder(depth).simulate(data, channel, secded);
+        System.out.println("Блоков: " + report.getBlocks());
+        System.out.println("Искажено битов: " + report.getFlippedBits());
+        System.out.println("Исправлено блоков: " + report.getCorrectedBlocks());
+        System.out.println("Обнаружено неисправимых блоков: " + report.getDetectedBlocks());
+        System.out.println("Необнаруженных искажённых блоков: " + report.getSilentBlocks());
+        System.out.println(String.format("Скорость кодирования: %.1f МБ/с", report.getEncodeMegabytesPerSecond()));
+        System.out.println(String.format("Скорость декодирования: %.1f МБ/с", report.getDecodeMegabytesPerSecond()));
+    }
+
+    private static void printReport(HammingDecodingReport report) {
+        System.out.println("Блоков: " + report.getBlocks());
+        System.out.println("Исправлено блоков: " + report.getCorrectedBlocks());
+        System.out.println("Неисправимых блоков: " + report.getUncorrectableBlocks());
+        if (report.getUncorrectableBlocks() > 0) {
+            System.out.println("Номера неисправимых блоков: " + report.getUncorrectableBlockIndices());
+        }
+    }
+
+    private static void pipelineEncode() throws IOException {
+        CodecPipeline pipeline = readPipeline();
+        printEncodeInvitation();
+        pipeline.encode(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    private static void pipelineDecode() throws IOException {
+        CodecPipeline pipeline = readPipeline();
+        printDecodeInvitation();
+        pipeline.decode(codeFilePath, filePath);
+        System.out.println("Выполнено");
+    }
+
+    // Stages are listed in the encoding order, decoding needs the same list
+    private static CodecPipeline readPipeline() {
+        while (true) {
+            System.out.println("Введите этапы кодирования через пробел (huffman, arithmetic, bwt, hamming, tans):");
+            CodecPipeline.CodecPipelineBuilder builder = CodecPipeline.builder().threaded(true);
+            boolean correct = true;
+            for (String stage : scanner.nextLine().trim().split("\\s+")) {
+                switch (stage) {
+                    case "huffman":
+                        builder.stage(new HuffmanCoder());
+                        break;
+                    case "arithmetic":
+                        builder.stage(new ArithmeticCoder());
+                        break;
+                    case "bwt":
+                        builder.stage(new BurrowsWheelerTransformCoder());
+                        break;
+                    case "hamming":
+                        builder.stage(new HammingCoder());
+                        break;
+                    case "tans":
+                        builder.stage(new TansCoder());
+                        break;
+                    default:
+                        System.out.println("Неизвестный этап: " + stage);
+                        correct = false;
+                        break;
+                }
+            }
+            if (correct) {
+                return builder.build();
+            }
+        }
+    }
+
+    private static void containerEncode() throws IOException {
+        ContainerCodec codec;
+        while (true) {
+            System.out.println("Введите кодер (stored, huffman, arithmetic, bwt, hamming, tans):");
+            try {
+                codec = ContainerCodec.valueOf(scanner.nextLine().trim().toUpperCase());
+                break;
+            } catch (IllegalArgumentException e) {
+                System.out.println("Неизвестный кодер");
+            }
+        }
+        printEncodeInvitation();
+        new ContainerCoder(codec).encode(filePath, codeFilePath);
+        System.out.println("Выполнено");
+    }
+
+    // The codec is read from the container header
+    private static void containerDecode() throws IOException {
+        printDecodeInvitation();
+        try (ContainerReader reader = new ContainerReader(codeFilePath)) {
+            reader.decodeTo(filePath);
+        }
+        System.out.println("Выполнено");
+    }
+
+    private static void containerVerify() throws IOException {
+        while (true) {
+            System.out.println("Введите абсолютный путь до проверяемого контейнера:");
+            codeFilePath = scanner.nextLine();
+            if (!Files.exists(new File(codeFilePath).toPath())) {
+                System.out.println("Указанный файл не существует");
+            } else {
+                break;
+            }
+        }
+        try (ContainerReader reader = new ContainerReader(codeFilePath)) {
+            System.out.println("Кодер: " + reader.getCodec().name().toLowerCase());
+            System.out.println("Блоков: " + reader.getBlocks().size());
+            System.out.println("Исходный размер: " + reader.getRawSize());
+            List<Integer> corrupted = reader.findCorruptedBlocks();
+            System.out.println("Повреждённых блоков: " + corrupted.size());
+            if (!corrupted.isEmpty()) {
+                System.out.println("Номера повреждённых блоков: " + corrupted);
+            }
+        }
+    }
+
+    // Only the blocks holding the requested bytes are decoded
+    private static void containerRead() throws IOException {
+        while (true) {
+            System.out.println("Введите абсолютный путь до контейнера:");
+            codeFilePath = scanner.nextLine();
+            if (!Files.exists(new File(codeFilePath).toPath())) {
+                System.out.println("Указанный файл не существует");
+            } else {
+                break;
+            }
+        }
+        System.out.println("Введите смещение в байтах:");
+        long position = Long.parseLong(scanner.nextLine().trim());
+        System.out.println("Введите количество байтов:");
+        int length = Integer.parseInt(scanner.nextLine().trim());
+        try (SeekableContainerReader reader = new SeekableContainerReader(codeFilePath)) {
+            System.out.println(new String(reader.read(position, length), StandardCharsets.UTF_8));
+        }
+    }
+
     private static void compare() throws IOException {
         while (true) {
             System.out.println("Введите абсолютный путь первого текстового файла:");
@@ -167,12 +556,42 @@ public class Application {
         System.out.println("Список доступных команд:");
         System.out.println("huffman encode - закодировать файл алгоритмом Хаффмана");
         System.out.println("huffman decode - декодировать файл алгоритмом Хаффмана");
+        System.out.println("huffman binary encode - закодировать файл алгоритмом Хаффмана в двоичный формат");
+        System.out.println("huffman binary decode - декодировать файл из двоичного формата алгоритма Хаффмана");
+        System.out.println("huffman parallel encode - закодировать файл алгоритмом Хаффмана в двоичный формат в несколько потоков");
+        System.out.println("huffman interleaved encode - закодировать файл алгоритмом Хаффмана в четыре чередующихся потока");
+        System.out.println("huffman interleaved decode - декодировать файл из формата с четырьмя чередующимися потоками");
+        System.out.println("huffman context encode - закодировать файл алгоритмом Хаффмана с учётом предыдущего символа");
+        System.out.println("huffman context decode - декодировать файл алгоритмом Хаффмана с учётом предыдущего символа");
+        System.out.println("huffman adaptive encode - закодировать файл адаптивным алгоритмом Хаффмана за один проход");
+        System.out.println("huffman adaptive decode - декодировать файл адаптивным алгоритмом Хаффмана");
         System.out.println("arithmetic encode - закодировать файл алгоритмом Арифметического кодирования");
         System.out.println("arithmetic decode - декодировать файл алгоритмом Арифметического кодирования");
+        System.out.println("arithmetic binary encode - закодировать файл интервальным (range) кодером в двоичный формат");
+        System.out.println("arithmetic binary decode - декодировать файл из двоичного формата интервального (range) кодера");
+        System.out.println("arithmetic adaptive encode - закодировать файл адаптивной контекстной моделью (PPM) за один проход");
+        System.out.println("arithmetic adaptive decode - декодировать файл адаптивной контекстной моделью (PPM)");
+        System.out.println("tans encode - закодировать файл табличной асимметричной системой счисления (tANS)");
+        System.out.println("tans decode - декодировать файл табличной асимметричной системой счисления (tANS)");
         System.out.println("bwt encode - закодировать файл алгоритмом преобразования Барроуза — Уилера");
         System.out.println("bwt decode - декодировать файл алгоритмом преобразования Барроуза — Уилера");
+        System.out.println("bwt binary encode - закодировать файл преобразованием Барроуза — Уилера в двоичный формат");
+        System.out.println("bwt binary decode - декодировать файл из двоичного формата преобразования Барроуза — Уилера");
+        System.out.println("bwt parallel encode - закодировать файл преобразованием Барроуза — Уилера в двоичный формат в несколько потоков");
+        System.out.println("bwt parallel decode - декодировать файл из двоичного формата преобразования Барроуза — Уилера в несколько потоков");
         System.out.println("hamming encode - закодировать файл алгоритмом Хэмминга");
         System.out.println("hamming decode - декодировать файл алгоритмом Хэмминга");
+        System.out.println("hamming binary encode - закодировать файл кодом Хэмминга (7,4) в упакованный двоичный формат");
+        System.out.println("hamming binary decode - декодировать файл из упакованного двоичного формата кода Хэмминга (7,4)");
+        System.out.println("hamming secded encode - закодировать файл расширенным кодом Хэмминга (72,64)");
+        System.out.println("hamming secded decode - декодировать файл расширенным кодом Хэмминга (72,64) с отчётом об ошибках");
+        System.out.println("hamming simulate - смоделировать передачу случайных данных по каналу со случайными и пакетными ошибками");
+        System.out.println("pipeline encode - закодировать файл цепочкой кодеров за один проход (например: bwt hamming)");
+        System.out.println("pipeline decode - декодировать файл той же цепочкой кодеров");
+        System.out.println("container encode - упаковать файл в контейнер с независимыми блоками и контрольными суммами");
+        System.out.println("container decode - распаковать контейнер, кодер определяется по заголовку");
+        System.out.println("container verify - проверить контрольные суммы блоков контейнера без декодирования");
+        System.out.println("container read - прочитать фрагмент контейнера по смещению, декодируя только нужные блоки");
         System.out.println("compare - сравнить содержания текстовых файлов");
         System.out.println("help - список доступных команд");
         System.out.println("exit - выход из программы");
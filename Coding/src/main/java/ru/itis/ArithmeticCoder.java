@@ -2,17 +2,36 @@ package ru.itis;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
-public class ArithmeticCoder {
+// encode/decode over file paths keep the original text format with the segment table, the Codec stream methods
+// write the adaptive PPM format, which encodeAdaptive/decodeAdaptive write to and read from files
+public class ArithmeticCoder implements Codec {
 
+    private static final int ALPHABET_SIZE = 256;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int LOOKUP_SIZE = 1 << 16;
+    private static final int DEFAULT_CONTEXT_ORDER = 2;
+    private static final long DEFAULT_CONTEXT_MEMORY = 64L << 20;
+
+    private final FrequencyHistogram histogram;
+    private final int contextOrder;
+    private final long contextMemory;
     private final HashMap<Character, Long> characterRateMap;
     private final HashMap<Character, ArrayList<Long>> segmentsMap;
     private Long numberOfCharacters;
 
     public ArithmeticCoder() {
+        this(DEFAULT_CONTEXT_ORDER, DEFAULT_CONTEXT_MEMORY);
+    }
+
+    // Both sides of the adaptive mode have to use the same order and memory budget
+    public ArithmeticCoder(int contextOrder, long contextMemory) {
+        this.histogram = new FrequencyHistogram();
+        this.contextOrder = contextOrder;
+        this.contextMemory = contextMemory;
         this.characterRateMap = new HashMap<>();
         this.segmentsMap = new HashMap<>();
         numberOfCharacters = 0L;
@@ -31,24 +50,70 @@ public class ArithmeticCoder {
         readCodeFile(codeFilePath, filePath);
     }
 
+    public void encodeBinary(String filePath, String codeFilePath) throws IOException {
+        long[] rates = histogram.countBytes(filePath);
+        writeBinaryCodeFile(filePath, codeFilePath, rates);
+    }
+
+    public void decodeBinary(String codeFilePath, String filePath) throws IOException {
+        readBinaryCodeFile(codeFilePath, filePath);
+    }
+
+    public void encodeAdaptive(String filePath, String codeFilePath) throws IOException {
+        encodeAdaptive(new FileInputStream(filePath), new BufferedOutputStream(new FileOutputStream(codeFilePath)));
+    }
+
+    public void decodeAdaptive(String codeFilePath, String filePath) throws IOException {
+        decodeAdaptive(new BufferedInputStream(new FileInputStream(codeFilePath)),
+                new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE));
+    }
+
+    // Codec streams use the adaptive mode, the other ones read the data twice
+    @Override
+    public void encode(InputStream in, OutputStream codeOut) throws IOException {
+        encodeAdaptive(in, codeOut);
+    }
+
+    @Override
+    public void decode(InputStream codeIn, OutputStream out) throws IOException {
+        decodeAdaptive(codeIn, out);
+    }
+
+    // Single pass without a header, the PPM model learns the same statistics on both sides
+    public void encodeAdaptive(InputStream in, OutputStream codeOut) throws IOException {
+        PpmModel model = new PpmModel(contextOrder, contextMemory);
+        RangeEncoder out = new RangeEncoder(codeOut);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            for (int i = 0; i < length; i++) {
+                model.encode(buffer[i] & 0xFF, out);
+            }
+        }
+        model.encode(PpmModel.END_OF_STREAM, out);
+        in.close();
+        out.close();
+    }
+
+    public void decodeAdaptive(InputStream codeIn, OutputStream out) throws IOException {
+        PpmModel model = new PpmModel(contextOrder, contextMemory);
+        RangeDecoder in = new RangeDecoder(codeIn);
+        int symbol;
+        while ((symbol = model.decode(in)) != PpmModel.END_OF_STREAM) {
+            out.write(symbol);
+        }
+        in.close();
+        out.close();
+    }
+
     private void readFileAndCalculateCharacterRate(String filePath) throws IOException {
-        BufferedReader in = new BufferedReader(new FileReader(filePath));
-        String line;
+        long[] rates = histogram.countCharacters(filePath);
         characterRateMap.put('\n', 0L);
-        while ((line = in.readLine()) != null) {
-            for (int i = 0; i < line.length(); i++) {
-                char c = line.charAt(i);
-                long rate;
-                if (!characterRateMap.containsKey(c)) {
-                    rate = 1;
-                } else {
-                    rate = characterRateMap.get(c) + 1;
-                }
-                characterRateMap.put(c, rate);
+        for (int i = 0; i < rates.length; i++) {
+            if (rates[i] > 0) {
+                characterRateMap.put((char) i, rates[i]);
             }
-            characterRateMap.put('\n', characterRateMap.get('\n') + 1);
         }
-        in.close();
     }
 
     private void buildSegments() {
@@ -145,8 +210,8 @@ public class ArithmeticCoder {
     }
 
     private void readCodeFile(String codeFilePath, String filePath) throws IOException {
-        ArrayList<Long> points = new ArrayList<>();
-        ArrayList<Character> characters = new ArrayList<>();
+        ArrayList<Long> pointList = new ArrayList<>();
+        ArrayList<Character> characterList = new ArrayList<>();
         BufferedReader in = new BufferedReader(new FileReader(codeFilePath));
         BufferedWriter out = new BufferedWriter(new FileWriter(filePath));
         // Read points
@@ -155,11 +220,11 @@ public class ArithmeticCoder {
         while (!(line = in.readLine()).equals("--")) {
             if (line.length() > 0 && !flag) {
                 char c = line.charAt(0);
-                points.add(Long.parseLong(line.substring(1)));
-                characters.add(c);
+                pointList.add(Long.parseLong(line.substring(1)));
+                characterList.add(c);
             } else if (flag) {
-                points.add(Long.parseLong(line));
-                characters.add('\n');
+                pointList.add(Long.parseLong(line));
+                characterList.add('\n');
                 flag = false;
             } else {
                 flag = true;
@@ -167,30 +232,53 @@ public class ArithmeticCoder {
         }
         // Read number of characters
         numberOfCharacters = Long.parseLong(in.readLine());
-        points.add(numberOfCharacters);
-        // Read code
-        line = in.readLine();
-        StringBuilder code = new StringBuilder();
-        for (int i = 0; i < line.length(); i += 4) {
-            code.append(Long.valueOf(line.substring(i, i + 4), 2));
+        long characterCount = numberOfCharacters;
+        // Sort intervals by their start into primitive arrays, the last point closes the last interval
+        Integer[] order = new Integer[pointList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> Long.compare(pointList.get(first), pointList.get(second)));
+        long[] points = new long[order.length + 1];
+        char[] characters = new char[order.length];
+        for (int i = 0; i < order.length; i++) {
+            points[i] = pointList.get(order[i]);
+            characters[i] = characterList.get(order[i]);
+        }
+        points[order.length] = characterCount;
+        // Every slot of the lookup table points to the interval that contains the start of the slot
+        int slotCount = (int) Math.max(1, Math.min(characterCount, LOOKUP_SIZE));
+        long slotWidth = Math.max(1, (characterCount + slotCount - 1) / slotCount);
+        int[] slots = new int[slotCount];
+        for (int slot = 0, i = 0; slot < slotCount; slot++) {
+            while (i + 1 < characters.length && points[i + 1] <= slot * slotWidth) {
+                i++;
+            }
+            slots[slot] = i;
         }
+        // Read code, the register holds the 18 decimal digits the current interval is compared with
         long start = 0L;
         long end = 999999999999999999L;
         long divider = 100000000000000000L;
-        int it = 18;
+        long frame = 0L;
+        boolean exhausted = false;
+        for (int i = 0; i < 18 && !exhausted; i++) {
+            int digit = readDigit(in);
+            exhausted = digit == -1;
+            frame = frame * 10 + digit;
+        }
         long written = 0;
-        while (it <= code.length() && written < numberOfCharacters) {
-            long frame = Long.parseLong(code.substring(it - 18, it));
-            long index = (long) ((frame - start) * ((double) numberOfCharacters / (end - start + 1)) - ((double) 1 / (end - start + 1)));
-            int i = Collections.binarySearch(points, index, Long::compareTo);
-            if (i < 0) {
-                i = -i - 2;
+        while (!exhausted && written < characterCount) {
+            long index = (long) ((frame - start) * ((double) characterCount / (end - start + 1)) - ((double) 1 / (end - start + 1)));
+            index = Math.max(0, Math.min(index, characterCount - 1));
+            int i = slots[(int) Math.min(index / slotWidth, slotCount - 1)];
+            while (i + 1 < characters.length && points[i + 1] <= index) {
+                i++;
             }
-            out.write(characters.get(i));
+            out.write(characters[i]);
             written++;
-            out.flush();
-            long st = (long) (start + (end - start + 1) * ((double) points.get(i) / numberOfCharacters));
-            end = (long) (start + (end - start + 1) * ((double) points.get(i + 1) / numberOfCharacters) - 1);
+            long st = (long) (start + (end - start + 1) * ((double) points[i] / characterCount));
+            end = (long) (start + (end - start + 1) * ((double) points[i + 1] / characterCount) - 1);
             start = st;
             long s = (start - start % divider) / divider;
             long e = (end - end % divider) / divider;
@@ -201,11 +289,119 @@ public class ArithmeticCoder {
                 end = end * 10 + 9;
                 s = (start - start % divider) / divider;
                 e = (end - end % divider) / divider;
-                it++;
+                if (!exhausted) {
+                    int digit = readDigit(in);
+                    exhausted = digit == -1;
+                    frame = frame % divider * 10 + digit;
+                }
+            }
+        }
+        in.close();
+        out.close();
+    }
+
+    // Every decimal digit of the code is stored as four binary characters
+    private int readDigit(BufferedReader in) throws IOException {
+        int digit = 0;
+        for (int i = 0; i < 4; i++) {
+            int c = in.read();
+            if (c != '0' && c != '1') {
+                return -1;
+            }
+            digit = (digit << 1) | (c - '0');
+        }
+        return digit;
+    }
+
+    private void writeBinaryCodeFile(String filePath, String codeFilePath, long[] rates) throws IOException {
+        long bytes = 0L;
+        for (long rate : rates) {
+            bytes += rate;
+        }
+        int[] frequencies = scaleFrequencies(rates, bytes);
+        int[] cumulativeFrequencies = new int[ALPHABET_SIZE + 1];
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            cumulativeFrequencies[i + 1] = cumulativeFrequencies[i] + frequencies[i];
+        }
+        int total = cumulativeFrequencies[ALPHABET_SIZE];
+        InputStream in = new FileInputStream(filePath);
+        OutputStream fileOut = new BufferedOutputStream(new FileOutputStream(codeFilePath));
+        DataOutputStream header = new DataOutputStream(fileOut);
+        // Write number of bytes and frequencies
+        header.writeLong(bytes);
+        int symbolCount = ALPHABET_SIZE;
+        while (symbolCount > 0 && frequencies[symbolCount - 1] == 0) {
+            symbolCount--;
+        }
+        header.writeShort(symbolCount);
+        for (int i = 0; i < symbolCount; i++) {
+            header.writeShort(frequencies[i]);
+        }
+        header.flush();
+        // Write code
+        RangeEncoder out = new RangeEncoder(fileOut);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            for (int i = 0; i < length; i++) {
+                int b = buffer[i] & 0xFF;
+                out.encode(cumulativeFrequencies[b], frequencies[b], total);
             }
         }
         in.close();
         out.close();
     }
 
+    private void readBinaryCodeFile(String codeFilePath, String filePath) throws IOException {
+        DataInputStream fileIn = new DataInputStream(new BufferedInputStream(new FileInputStream(codeFilePath)));
+        // Read number of bytes and frequencies
+        long bytesToDecode = fileIn.readLong();
+        int symbolCount = fileIn.readUnsignedShort();
+        if (symbolCount > ALPHABET_SIZE) {
+            throw new IOException("Incorrect code file");
+        }
+        int[] cumulativeFrequencies = new int[ALPHABET_SIZE + 1];
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            cumulativeFrequencies[i + 1] = cumulativeFrequencies[i] + (i < symbolCount ? fileIn.readUnsignedShort() : 0);
+        }
+        int total = cumulativeFrequencies[ALPHABET_SIZE];
+        // Every frequency slot maps directly to its symbol
+        byte[] slots = new byte[total];
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            Arrays.fill(slots, cumulativeFrequencies[i], cumulativeFrequencies[i + 1], (byte) i);
+        }
+        // Read code
+        RangeDecoder in = new RangeDecoder(fileIn);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE);
+        for (long i = 0; i < bytesToDecode; i++) {
+            int symbol = slots[in.getFrequency(total)] & 0xFF;
+            in.decode(cumulativeFrequencies[symbol], cumulativeFrequencies[symbol + 1] - cumulativeFrequencies[symbol]);
+            out.write(symbol);
+        }
+        in.close();
+        out.close();
+    }
+
+    // Scales rates down so that they fit the range coder, every present symbol keeps a non-zero frequency
+    private int[] scaleFrequencies(long[] rates, long bytes) {
+        int[] frequencies = new int[rates.length];
+        if (bytes == 0) {
+            return frequencies;
+        }
+        long total = Math.min(bytes, RangeEncoder.MAX_TOTAL_FREQUENCY);
+        int sum = 0;
+        int largest = 0;
+        for (int i = 0; i < rates.length; i++) {
+            if (rates[i] > 0) {
+                frequencies[i] = (int) Math.max(1, rates[i] * total / bytes);
+                sum += frequencies[i];
+                if (rates[i] > rates[largest]) {
+                    largest = i;
+                }
+            }
+        }
+        frequencies[largest] += total - sum;
+        return frequencies;
+    }
+
 }
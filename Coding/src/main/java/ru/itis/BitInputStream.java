@@ -0,0 +1,85 @@
+package ru.itis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class BitInputStream implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    // Unread bits are kept in the high part of the accumulator, the next bit is the highest one
+    private long accumulator;
+    private int bitCount;
+    // Zero bits appended to the accumulator after the end of the source
+    private int paddingBits;
+
+    public BitInputStream(InputStream in) {
+        this.in = in;
+        this.buffer = new byte[BUFFER_SIZE];
+        position = 0;
+        limit = 0;
+        accumulator = 0L;
+        bitCount = 0;
+        paddingBits = 0;
+    }
+
+    public int readBit() throws IOException {
+        return (int) readBits(1);
+    }
+
+    public long readBits(int length) throws IOException {
+        long value = peekBits(length);
+        skipBits(length);
+        return value;
+    }
+
+    // Bits past the end of the stream are read as zeros
+    public long peekBits(int length) throws IOException {
+        if (bitCount < length) {
+            refill(length);
+        }
+        return accumulator >>> (64 - length);
+    }
+
+    public void skipBits(int length) {
+        accumulator <<= length;
+        bitCount -= length;
+    }
+
+    // Whether any of the bits read so far lay past the end of the stream
+    public boolean isPastEnd() {
+        return bitCount < paddingBits;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void refill(int length) throws IOException {
+        while (bitCount <= 56) {
+            if (position == limit) {
+                // Do not wait for the source to deliver bits that are not needed yet
+                if (bitCount >= length) {
+                    break;
+                }
+                limit = Math.max(in.read(buffer), 0);
+                position = 0;
+            }
+            long b = 0;
+            if (position < limit) {
+                b = buffer[position++] & 0xFF;
+            } else {
+                paddingBits += 8;
+            }
+            accumulator |= b << (56 - bitCount);
+            bitCount += 8;
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package ru.itis;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class BitOutputStream implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+    // Pending bits are kept in the low part of the accumulator, the oldest bit is the highest one
+    private long accumulator;
+    private int bitCount;
+
+    public BitOutputStream(OutputStream out) {
+        this.out = out;
+        this.buffer = new byte[BUFFER_SIZE];
+        position = 0;
+        accumulator = 0L;
+        bitCount = 0;
+    }
+
+    public void writeBit(int bit) throws IOException {
+        writeBits(bit, 1);
+    }
+
+    public void writeBits(long value, int length) throws IOException {
+        if (length > 32) {
+            writeBits(value >>> 32, length - 32);
+            value &= 0xFFFFFFFFL;
+            length = 32;
+        }
+        accumulator = (accumulator << length) | (value & ((1L << length) - 1));
+        bitCount += length;
+        if (bitCount >= 32) {
+            bitCount -= 32;
+            writeInt((int) (accumulator >>> bitCount));
+        }
+    }
+
+    // Writes out all complete bytes, up to seven bits stay pending
+    public void flush() throws IOException {
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            writeByte((int) (accumulator >>> bitCount));
+        }
+        out.write(buffer, 0, position);
+        position = 0;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Pad the last byte with zeros
+        while (bitCount > 0) {
+            int shift = bitCount - 8;
+            writeByte((int) (shift >= 0 ? accumulator >>> shift : accumulator << -shift));
+            bitCount = Math.max(shift, 0);
+        }
+        out.write(buffer, 0, position);
+        position = 0;
+        out.close();
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (position + 4 > buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeByte(int value) throws IOException {
+        if (position == buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+}
@@ -0,0 +1,59 @@
+package ru.itis;
+
+// Block interleaver over packed bits: depth codewords form a frame that is sent column by column, the first
+// bit of every codeword, then the second one and so on. A burst of up to depth bits hits every codeword once
+public class BlockInterleaver {
+
+    private final int depth;
+    private final int codewordBits;
+
+    public BlockInterleaver(int depth, int codewordBits) {
+        this.depth = Math.max(depth, 1);
+        this.codewordBits = codewordBits;
+    }
+
+    // Bits after the last whole codeword are copied as they are, the last frame may hold fewer codewords
+    public void interleave(byte[] data, long bitLength, byte[] out) {
+        permute(data, bitLength, out, true);
+    }
+
+    public void deinterleave(byte[] data, long bitLength, byte[] out) {
+        permute(data, bitLength, out, false);
+    }
+
+    // Output bits are produced in order, so they are gathered into a byte and written a whole byte at a time
+    private void permute(byte[] data, long bitLength, byte[] out, boolean forward) {
+        int bytes = (int) ((bitLength + 7) >>> 3);
+        System.arraycopy(data, 0, out, 0, bytes);
+        if (depth == 1) {
+            return;
+        }
+        long codewords = bitLength / codewordBits;
+        int index = 0;
+        int accumulator = 0;
+        int count = 0;
+        for (long first = 0; first < codewords; first += depth) {
+            int rows = (int) Math.min(depth, codewords - first);
+            long base = first * codewordBits;
+            int outer = forward ? codewordBits : rows;
+            int inner = forward ? rows : codewordBits;
+            int step = forward ? codewordBits : rows;
+            for (int i = 0; i < outer; i++) {
+                long position = base + i;
+                for (int j = 0; j < inner; j++, position += step) {
+                    accumulator = (accumulator << 1) | ((data[(int) (position >>> 3)] >>> (7 - (int) (position & 7))) & 1);
+                    if (++count == 8) {
+                        out[index++] = (byte) accumulator;
+                        accumulator = 0;
+                        count = 0;
+                    }
+                }
+            }
+        }
+        if (count > 0) {
+            // The rest of this byte belongs to the copied tail
+            out[index] = (byte) ((accumulator << (8 - count)) | (out[index] & (0xFF >>> count)));
+        }
+    }
+
+}
@@ -1,20 +1,53 @@
 package ru.itis;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// encode/decode over file paths keep the original text format with the key indices, the Codec stream methods
+// write the binary block format, which encodeBinary/decodeBinary write to and read from files
+public class BurrowsWheelerTransformCoder implements Codec {
 
-public class BurrowsWheelerTransformCoder {
+    private static final int BYTE_ALPHABET_SIZE = 256;
+    private static final int CHARACTER_ALPHABET_SIZE = 65536;
+    private static final int DEFAULT_PIECE_SIZE = 900000;
+    // Decoders reject longer blocks, so a broken header cannot make them allocate gigabytes
+    private static final int MAX_PIECE_SIZE = 1 << 26;
 
-    private final ArrayList<String> rotations;
+    private final int pieceSize;
+    private final int parallelism;
+    private final int blocksInFlight;
     private final HashSet<Character> alphabet;
-    private final ArrayList<Character> tempCode;
+    private final InverseBurrowsWheelerTransform inverseTransform;
+    private char[] tempCode;
+    private int tempCodeLength;
+    private char[] decodedPiece;
     private Integer keyIndex;
-    private static final int PIECE_SIZE = 1000;
 
     public BurrowsWheelerTransformCoder() {
-        rotations = new ArrayList<>();
+        this(DEFAULT_PIECE_SIZE);
+    }
+
+    public BurrowsWheelerTransformCoder(int pieceSize) {
+        this(pieceSize, Runtime.getRuntime().availableProcessors(), 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    // Parallel modes keep at most blocksInFlight blocks read but not yet written
+    public BurrowsWheelerTransformCoder(int pieceSize, int parallelism, int blocksInFlight) {
+        this.pieceSize = Math.min(Math.max(pieceSize, 1), MAX_PIECE_SIZE);
+        this.parallelism = Math.max(parallelism, 1);
+        this.blocksInFlight = Math.max(blocksInFlight, 1);
         alphabet = new HashSet<>();
-        tempCode = new ArrayList<>();
+        inverseTransform = new InverseBurrowsWheelerTransform();
+        tempCode = new char[0];
+        tempCodeLength = 0;
+        decodedPiece = new char[0];
         keyIndex = -1;
     }
 
@@ -28,6 +61,163 @@ public class BurrowsWheelerTransformCoder {
         readCodeFile(codeFilePath, filePath);
     }
 
+    public void encodeBinary(String filePath, String codeFilePath) throws IOException {
+        encodeBinary(new FileInputStream(filePath), new FileOutputStream(codeFilePath));
+    }
+
+    public void decodeBinary(String codeFilePath, String filePath) throws IOException {
+        decodeBinary(new FileInputStream(codeFilePath), new FileOutputStream(filePath));
+    }
+
+    public void encodeBinaryParallel(String filePath, String codeFilePath) throws IOException {
+        encodeBinaryParallel(new FileInputStream(filePath), new FileOutputStream(codeFilePath));
+    }
+
+    public void decodeBinaryParallel(String codeFilePath, String filePath) throws IOException {
+        decodeBinaryParallel(new FileInputStream(codeFilePath), new FileOutputStream(filePath));
+    }
+
+    // Codec streams use the sequential binary mode
+    @Override
+    public void encode(InputStream in, OutputStream codeOut) throws IOException {
+        encodeBinary(in, codeOut);
+    }
+
+    @Override
+    public void decode(InputStream codeIn, OutputStream out) throws IOException {
+        decodeBinary(codeIn, out);
+    }
+
+    // Binary mode over bytes: every block goes through the transform, move-to-front and zero run-length
+    // coding and is written as its length, key index, Huffman table, code length and code; a zero length ends the file
+    public void encodeBinary(InputStream in, OutputStream codeOut) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(codeOut));
+        BlockCoder coder = new BlockCoder();
+        byte[] block = new byte[pieceSize];
+        int blockLength;
+        while ((blockLength = readBlock(in, block)) > 0) {
+            out.write(coder.encode(block, blockLength));
+        }
+        out.writeInt(0);
+        in.close();
+        out.close();
+    }
+
+    public void decodeBinary(InputStream codeIn, OutputStream decodedOut) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(codeIn));
+        OutputStream out = new BufferedOutputStream(decodedOut);
+        BlockCoder coder = new BlockCoder();
+        byte[] block = new byte[0];
+        EncodedBlock encodedBlock;
+        while ((encodedBlock = readEncodedBlock(in)) != null) {
+            // Blocks may be larger than the piece size of this coder
+            if (encodedBlock.getLength() > block.length) {
+                block = new byte[encodedBlock.getLength()];
+            }
+            coder.decode(encodedBlock, block);
+            out.write(block, 0, encodedBlock.getLength());
+        }
+        in.close();
+        out.close();
+    }
+
+    // Same format as encodeBinary, blocks are compressed by a pool of workers and written in their order
+    public void encodeBinaryParallel(InputStream in, OutputStream codeOut) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(codeOut));
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        ThreadLocal<BlockCoder> coders = ThreadLocal.withInitial(BlockCoder::new);
+        ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        try {
+            while (true) {
+                // The oldest block is written before the next one is read, so at most blocksInFlight are held
+                if (inFlight.size() == blocksInFlight) {
+                    out.write(await(inFlight.poll()));
+                }
+                byte[] block = new byte[pieceSize];
+                int blockLength = readBlock(in, block);
+                if (blockLength == 0) {
+                    break;
+                }
+                inFlight.add(executor.submit(() -> coders.get().encode(block, blockLength)));
+            }
+            while (!inFlight.isEmpty()) {
+                out.write(await(inFlight.poll()));
+            }
+            out.writeInt(0);
+        } finally {
+            executor.shutdownNow();
+            in.close();
+            out.close();
+        }
+    }
+
+    public void decodeBinaryParallel(InputStream codeIn, OutputStream decodedOut) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(codeIn));
+        OutputStream out = new BufferedOutputStream(decodedOut);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        ThreadLocal<BlockCoder> coders = ThreadLocal.withInitial(BlockCoder::new);
+        ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        try {
+            while (true) {
+                if (inFlight.size() == blocksInFlight) {
+                    out.write(await(inFlight.poll()));
+                }
+                EncodedBlock task = readEncodedBlock(in);
+                if (task == null) {
+                    break;
+                }
+                inFlight.add(executor.submit(() -> {
+                    byte[] block = new byte[task.getLength()];
+                    coders.get().decode(task, block);
+                    return block;
+                }));
+            }
+            while (!inFlight.isEmpty()) {
+                out.write(await(inFlight.poll()));
+            }
+        } finally {
+            executor.shutdownNow();
+            in.close();
+            out.close();
+        }
+    }
+
+    // Reads the next block of the binary format without decoding it, null at the end of the file
+    private EncodedBlock readEncodedBlock(DataInputStream in) throws IOException {
+        int blockLength = in.readInt();
+        if (blockLength == 0) {
+            return null;
+        }
+        int blockKeyIndex = in.readInt();
+        if (blockLength < 0 || blockLength > MAX_PIECE_SIZE || blockKeyIndex < 0 || blockKeyIndex >= blockLength) {
+            throw new IOException("Incorrect code file");
+        }
+        CanonicalHuffmanCode huffmanCode = CanonicalHuffmanCode.read(in, ZeroRunLengthCoder.ALPHABET_SIZE);
+        // At most blockLength symbols and the end of the block, each with a code of at most MAX_CODE_LENGTH bits
+        int codeLength = in.readInt();
+        long maxCodeLength = ((blockLength + 1L) * CanonicalHuffmanCode.MAX_CODE_LENGTH + 7) / 8;
+        if (codeLength < 0 || codeLength > maxCodeLength) {
+            throw new IOException("Incorrect code file");
+        }
+        byte[] code = new byte[codeLength];
+        in.readFully(code);
+        return new EncodedBlock(blockLength, blockKeyIndex, huffmanCode, code);
+    }
+
+    private <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while coding blocks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
     private void readFileAndWriteCodeFile(String filePath, String codeFilePath) throws IOException {
         BufferedReader in = new BufferedReader(new FileReader(filePath));
         BufferedWriter out = new BufferedWriter(new FileWriter(codeFilePath));
@@ -35,16 +225,16 @@ public class BurrowsWheelerTransformCoder {
         StringBuilder piece = new StringBuilder();
         while ((line = in.readLine()) != null) {
             int border = 0;
-            while (border < line.length() || piece.length() == PIECE_SIZE) {
-                if (piece.length() + line.substring(border).length() < PIECE_SIZE) {
+            while (border < line.length() || piece.length() == pieceSize) {
+                if (piece.length() + line.substring(border).length() < pieceSize) {
                     piece.append(line.substring(border));
                     border = line.length();
                 } else {
                     int oldBorder = border;
-                    border += (PIECE_SIZE - piece.length());
+                    border += (pieceSize - piece.length());
                     piece.append(line, oldBorder, border);
                 }
-                if (piece.length() == PIECE_SIZE) {
+                if (piece.length() == pieceSize) {
                     fillPieceMetadata(piece);
                     // Write alphabet
                     for (Character c : alphabet) {
@@ -90,43 +280,52 @@ public class BurrowsWheelerTransformCoder {
     }
 
     private void fillPieceMetadata(StringBuilder piece) {
-        for (int i = 0; i < piece.length(); i++) {
-            rotations.add(piece.toString());
-            piece.append(piece.charAt(0));
-            piece.deleteCharAt(0);
-        }
-        rotations.sort(String::compareTo);
-        for (int i = 0; i < rotations.size(); i++) {
-            if (rotations.get(i).equals(piece.toString())) {
+        int n = piece.length();
+        // Characters are replaced by their ranks to keep the suffix sorting buckets small
+        int[] ranks = new int[CHARACTER_ALPHABET_SIZE];
+        for (int i = 0; i < n; i++) {
+            ranks[piece.charAt(i)] = 1;
+        }
+        int alphabetSize = 0;
+        for (int i = 0; i < CHARACTER_ALPHABET_SIZE; i++) {
+            if (ranks[i] != 0) {
+                alphabet.add((char) i);
+                ranks[i] = alphabetSize++;
+            }
+        }
+        int[] text = new int[n];
+        for (int i = 0; i < n; i++) {
+            text[i] = ranks[piece.charAt(i)];
+        }
+        int[] rotations = SuffixArray.buildRotations(text, n, alphabetSize);
+        ensureTempCodeCapacity(n);
+        for (int i = 0; i < n; i++) {
+            if (rotations[i] == 0) {
                 keyIndex = i;
             }
-            alphabet.add(rotations.get(i).charAt(0));
-            tempCode.add(rotations.get(i).charAt(rotations.get(i).length() - 1));
+            tempCode[i] = piece.charAt(rotations[i] == 0 ? n - 1 : rotations[i] - 1);
         }
+        tempCodeLength = n;
     }
 
     private String encodeWithMoveToFront() {
-        LinkedList<Character> list = new LinkedList<>(alphabet);
-        Collections.sort(list);
-        StringBuilder code = new StringBuilder();
-        int blockSize = Integer.toString(alphabet.size() - 1, 2).length();
-        for (char c : tempCode) {
-            int index = list.indexOf(c);
-            list.remove(index);
-            list.addFirst(c);
-            String characterCode = Integer.toString(index, 2);
-            for (int j = 0; j < blockSize - characterCode.length(); j++) {
-                code.append('0');
+        int[] indices = new int[tempCodeLength];
+        MoveToFront.encode(sortedAlphabet(), tempCode, tempCodeLength, indices);
+        // Every index is written with the same number of binary digits
+        int blockSize = indexWidth();
+        char[] code = new char[tempCodeLength * blockSize];
+        int position = 0;
+        for (int i = 0; i < tempCodeLength; i++) {
+            for (int bit = blockSize - 1; bit >= 0; bit--) {
+                code[position++] = (char) ('0' + ((indices[i] >>> bit) & 1));
             }
-            code.append(characterCode);
         }
-        return code.toString();
+        return new String(code);
     }
 
     private void clearPieceMetadata() {
-        rotations.clear();
         alphabet.clear();
-        tempCode.clear();
+        tempCodeLength = 0;
         keyIndex = -1;
     }
 
@@ -142,36 +341,14 @@ public class BurrowsWheelerTransformCoder {
             } else {
                 keyIndex = Integer.parseInt(in.readLine());
                 decodeWithMoveToFront(in.readLine());
-                ArrayList<Character> sortedAlphabet = new ArrayList<>(alphabet);
-                sortedAlphabet.sort(Character::compareTo);
-                HashMap<Character, Integer> indices = new HashMap<>();
-                ArrayList<Integer> count = new ArrayList<>();
-                for (int i = 0; i < sortedAlphabet.size(); i++) {
-                    count.add(0);
-                    indices.put(sortedAlphabet.get(i), i);
-                }
-                for (Character c : tempCode) {
-                    count.set(indices.get(c), count.get(indices.get(c)) + 1);
+                if (keyIndex < 0 || keyIndex >= tempCodeLength) {
+                    throw new IOException("Incorrect code file");
                 }
-                int sum = 0;
-                for (Character c : sortedAlphabet) {
-                    sum += count.get(indices.get(c));
-                    count.set(indices.get(c), sum - count.get(indices.get(c)));
-                }
-                ArrayList<Integer> t = new ArrayList<>();
-                for (int i = 0; i < tempCode.size(); i++) {
-                    t.add(0);
-                }
-                for (int i = 0; i < tempCode.size(); i++) {
-                    t.set(count.get(indices.get(tempCode.get(i))), i);
-                    count.set(indices.get(tempCode.get(i)), count.get(indices.get(tempCode.get(i))) + 1);
-                }
-                int index = t.get(keyIndex);
-                for (int i = 0; i < t.size(); i++) {
-                    out.write(tempCode.get(index));
-                    out.flush();
-                    index = t.get(index);
+                if (decodedPiece.length < tempCodeLength) {
+                    decodedPiece = new char[tempCodeLength];
                 }
+                inverseTransform.decode(tempCode, tempCodeLength, keyIndex, decodedPiece);
+                out.write(decodedPiece, 0, tempCodeLength);
                 clearPieceMetadata();
             }
         }
@@ -179,16 +356,158 @@ public class BurrowsWheelerTransformCoder {
         out.close();
     }
 
-    private void decodeWithMoveToFront(String code) {
-        LinkedList<Character> list = new LinkedList<>(alphabet);
-        Collections.sort(list);
-        int blockSize = Integer.toString(alphabet.size() - 1, 2).length();
-        for (int i = 0; i < code.length(); i += blockSize) {
-            int index = Integer.valueOf(code.substring(i, i + blockSize), 2);
-            char c = list.remove(index);
-            tempCode.add(c);
-            list.addFirst(c);
+    private void decodeWithMoveToFront(String code) throws IOException {
+        int blockSize = indexWidth();
+        int n = code.length() / blockSize;
+        int[] indices = new int[n];
+        int position = 0;
+        for (int i = 0; i < n; i++) {
+            int index = 0;
+            for (int bit = 0; bit < blockSize; bit++) {
+                index = (index << 1) | (code.charAt(position++) - '0');
+            }
+            if (index < 0 || index >= alphabet.size()) {
+                throw new IOException("Incorrect code file");
+            }
+            indices[i] = index;
+        }
+        ensureTempCodeCapacity(n);
+        MoveToFront.decode(sortedAlphabet(), indices, n, tempCode);
+        tempCodeLength = n;
+    }
+
+    private char[] sortedAlphabet() {
+        char[] list = new char[alphabet.size()];
+        int i = 0;
+        for (Character c : alphabet) {
+            list[i++] = c;
+        }
+        Arrays.sort(list);
+        return list;
+    }
+
+    // Number of binary digits of the largest move-to-front index, at least one
+    private int indexWidth() {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(alphabet.size() - 1, 1));
+    }
+
+    private void ensureTempCodeCapacity(int capacity) {
+        if (tempCode.length < capacity) {
+            tempCode = new char[capacity];
+        }
+    }
+
+    private int readBlock(InputStream in, byte[] block) throws IOException {
+        int length = 0;
+        int read;
+        while (length < block.length && (read = in.read(block, length, block.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static class EncodedBlock {
+
+        private final int length;
+        private final int keyIndex;
+        private final CanonicalHuffmanCode huffmanCode;
+        private final byte[] code;
+
+    }
+
+    // Codes single blocks of the binary format; buffers are kept between blocks, so every thread needs its own coder
+    private static class BlockCoder {
+
+        private final InverseBurrowsWheelerTransform inverseTransform;
+        private final ByteArrayOutputStream record;
+        private byte[] lastColumn;
+        private byte[] indices;
+        private int[] symbols;
+
+        private BlockCoder() {
+            inverseTransform = new InverseBurrowsWheelerTransform();
+            record = new ByteArrayOutputStream();
+            lastColumn = new byte[0];
+            indices = new byte[0];
+            symbols = new int[0];
+        }
+
+        private byte[] encode(byte[] block, int length) throws IOException {
+            ensureCapacity(length);
+            int blockKeyIndex = transform(block, length);
+            MoveToFront.encode(lastColumn, length, indices);
+            int symbolCount = ZeroRunLengthCoder.encode(indices, length, symbols);
+            long[] rates = new long[ZeroRunLengthCoder.ALPHABET_SIZE];
+            for (int i = 0; i < symbolCount; i++) {
+                rates[symbols[i]]++;
+            }
+            CanonicalHuffmanCode huffmanCode = CanonicalHuffmanCode.fromFrequencies(rates, CanonicalHuffmanCode.MAX_CODE_LENGTH);
+            long[] codes = huffmanCode.getCodes();
+            int[] lengths = huffmanCode.getLengths();
+            ByteArrayOutputStream code = new ByteArrayOutputStream();
+            BitOutputStream bits = new BitOutputStream(code);
+            for (int i = 0; i < symbolCount; i++) {
+                bits.writeBits(codes[symbols[i]], lengths[symbols[i]]);
+            }
+            bits.close();
+            record.reset();
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeInt(length);
+            out.writeInt(blockKeyIndex);
+            huffmanCode.write(out);
+            out.writeInt(code.size());
+            code.writeTo(out);
+            return record.toByteArray();
         }
+
+        private void decode(EncodedBlock encodedBlock, byte[] block) throws IOException {
+            int length = encodedBlock.getLength();
+            ensureCapacity(length);
+            HuffmanDecodingTable table = encodedBlock.getHuffmanCode().buildDecodingTable();
+            BitInputStream bits = new BitInputStream(new ByteArrayInputStream(encodedBlock.getCode()));
+            int symbolCount = 0;
+            int symbol;
+            do {
+                if (symbolCount == length + 1) {
+                    throw new IOException("Incorrect code file");
+                }
+                symbol = table.decode(bits);
+                symbols[symbolCount++] = symbol;
+            } while (symbol != ZeroRunLengthCoder.END_OF_BLOCK);
+            if (ZeroRunLengthCoder.decode(symbols, symbolCount, indices) != length) {
+                throw new IOException("Incorrect code file");
+            }
+            MoveToFront.decode(indices, length, lastColumn);
+            inverseTransform.decode(lastColumn, length, encodedBlock.getKeyIndex(), block);
+        }
+
+        // Sorts the rotations of the block, fills the last column and returns the row of the block itself
+        private int transform(byte[] block, int length) {
+            int[] text = new int[length];
+            for (int i = 0; i < length; i++) {
+                text[i] = block[i] & 0xFF;
+            }
+            int[] rotations = SuffixArray.buildRotations(text, length, BYTE_ALPHABET_SIZE);
+            int blockKeyIndex = 0;
+            for (int i = 0; i < length; i++) {
+                if (rotations[i] == 0) {
+                    blockKeyIndex = i;
+                }
+                lastColumn[i] = block[rotations[i] == 0 ? length - 1 : rotations[i] - 1];
+            }
+            return blockKeyIndex;
+        }
+
+        private void ensureCapacity(int length) {
+            if (lastColumn.length < length) {
+                lastColumn = new byte[length];
+                indices = new byte[length];
+                symbols = new int[length + 1];
+            }
+        }
+
     }
 
 }
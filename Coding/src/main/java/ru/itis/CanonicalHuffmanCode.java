@@ -0,0 +1,170 @@
+package ru.itis;
+
+import lombok.AllArgsConstructor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+public class CanonicalHuffmanCode {
+
+    public static final int MAX_CODE_LENGTH = 15;
+
+    private final int[] lengths;
+    private final long[] codes;
+
+    @AllArgsConstructor
+    private static class Item {
+        private final long weight;
+        private final int symbol;
+        private final Item left;
+        private final Item right;
+
+    }
+
+    private CanonicalHuffmanCode(int[] lengths) {
+        this.lengths = lengths;
+        this.codes = new long[lengths.length];
+        assignCodes();
+    }
+
+    public static CanonicalHuffmanCode fromFrequencies(long[] frequencies, int maxLength) {
+        return new CanonicalHuffmanCode(calculateLengths(frequencies, maxLength));
+    }
+
+    // Header holds the number of described symbols and a 4-bit code length per symbol
+    public static CanonicalHuffmanCode read(DataInput in, int alphabetSize) throws IOException {
+        int symbolCount = in.readUnsignedShort();
+        if (symbolCount > alphabetSize) {
+            throw new IOException("Incorrect code file");
+        }
+        int[] lengths = new int[alphabetSize];
+        for (int i = 0; i < symbolCount; i += 2) {
+            int packed = in.readUnsignedByte();
+            lengths[i] = packed >>> 4;
+            if (i + 1 < symbolCount) {
+                lengths[i + 1] = packed & 0x0F;
+            }
+        }
+        return new CanonicalHuffmanCode(lengths);
+    }
+
+    public void write(DataOutput out) throws IOException {
+        int symbolCount = lengths.length;
+        while (symbolCount > 0 && lengths[symbolCount - 1] == 0) {
+            symbolCount--;
+        }
+        out.writeShort(symbolCount);
+        for (int i = 0; i < symbolCount; i += 2) {
+            int next = i + 1 < symbolCount ? lengths[i + 1] : 0;
+            out.writeByte((lengths[i] << 4) | next);
+        }
+    }
+
+    public int getHeaderSize() {
+        int symbolCount = lengths.length;
+        while (symbolCount > 0 && lengths[symbolCount - 1] == 0) {
+            symbolCount--;
+        }
+        return 2 + (symbolCount + 1) / 2;
+    }
+
+    public int getLength(int symbol) {
+        return lengths[symbol];
+    }
+
+    public int[] getLengths() {
+        return lengths;
+    }
+
+    public long[] getCodes() {
+        return codes;
+    }
+
+    public HuffmanDecodingTable buildDecodingTable() {
+        int[] symbols = new int[lengths.length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = i;
+        }
+        return new HuffmanDecodingTable(symbols, codes, lengths);
+    }
+
+    // Package-merge: optimal prefix code lengths that do not exceed maxLength
+    private static int[] calculateLengths(long[] frequencies, int maxLength) {
+        int[] lengths = new int[frequencies.length];
+        ArrayList<Item> leaves = new ArrayList<>();
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] > 0) {
+                leaves.add(new Item(frequencies[i], i, null, null));
+            }
+        }
+        if (leaves.size() == 1) {
+            lengths[leaves.get(0).symbol] = 1;
+        }
+        if (leaves.size() <= 1) {
+            return lengths;
+        }
+        if (leaves.size() > (1L << maxLength)) {
+            throw new IllegalArgumentException("Alphabet is too large for code length " + maxLength);
+        }
+        leaves.sort(Comparator.comparingLong((Item item) -> item.weight).thenComparingInt(item -> item.symbol));
+        ArrayList<Item> current = leaves;
+        for (int level = 1; level < maxLength; level++) {
+            ArrayList<Item> merged = new ArrayList<>(leaves.size() * 2);
+            int leafIndex = 0;
+            int packageIndex = 0;
+            while (leafIndex < leaves.size() || packageIndex + 1 < current.size()) {
+                long packWeight = Long.MAX_VALUE;
+                if (packageIndex + 1 < current.size()) {
+                    packWeight = current.get(packageIndex).weight + current.get(packageIndex + 1).weight;
+                }
+                if (leafIndex < leaves.size() && leaves.get(leafIndex).weight <= packWeight) {
+                    merged.add(leaves.get(leafIndex++));
+                } else {
+                    merged.add(new Item(packWeight, -1, current.get(packageIndex), current.get(packageIndex + 1)));
+                    packageIndex += 2;
+                }
+            }
+            current = merged;
+        }
+        for (int i = 0; i < 2 * leaves.size() - 2; i++) {
+            countLeaves(current.get(i), lengths);
+        }
+        return lengths;
+    }
+
+    private static void countLeaves(Item item, int[] lengths) {
+        if (item.left == null) {
+            lengths[item.symbol]++;
+        } else {
+            countLeaves(item.left, lengths);
+            countLeaves(item.right, lengths);
+        }
+    }
+
+    private void assignCodes() {
+        int maxLength = 0;
+        for (int length : lengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+        int[] lengthCount = new int[maxLength + 1];
+        for (int length : lengths) {
+            lengthCount[length]++;
+        }
+        lengthCount[0] = 0;
+        long[] nextCode = new long[maxLength + 1];
+        long code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + lengthCount[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            if (lengths[symbol] > 0) {
+                codes[symbol] = nextCode[lengths[symbol]]++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package ru.itis;
+
+import lombok.Builder;
+import lombok.Getter;
+
+// Outcome of sending data through a noisy channel: silent blocks were decoded wrong without being reported
+@Builder
+@Getter
+public class ChannelSimulationReport {
+
+    private final long blocks;
+    private final long flippedBits;
+    private final long correctedBlocks;
+    private final long detectedBlocks;
+    private final long silentBlocks;
+    private final double encodeMegabytesPerSecond;
+    private final double decodeMegabytesPerSecond;
+
+}
@@ -0,0 +1,56 @@
+package ru.itis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+// Coder over streams: encode turns the data read from in into code written to codeOut and decode does the
+// reverse. Both methods read their input to the end and close the streams they are given
+public interface Codec {
+
+    void encode(InputStream in, OutputStream codeOut) throws IOException;
+
+    void decode(InputStream codeIn, OutputStream out) throws IOException;
+
+    default byte[] encode(byte[] data) throws IOException {
+        ByteArrayOutputStream codeOut = new ByteArrayOutputStream();
+        encode(new ByteArrayInputStream(data), codeOut);
+        return codeOut.toByteArray();
+    }
+
+    default byte[] decode(byte[] code) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        decode(new ByteArrayInputStream(code), out);
+        return out.toByteArray();
+    }
+
+    // Buffer versions consume the remaining bytes of the argument
+    default ByteBuffer encode(ByteBuffer data) throws IOException {
+        ByteArrayOutputStream codeOut = new ByteArrayOutputStream();
+        encode(remaining(data), codeOut);
+        return ByteBuffer.wrap(codeOut.toByteArray());
+    }
+
+    default ByteBuffer decode(ByteBuffer code) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        decode(remaining(code), out);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    static InputStream remaining(ByteBuffer buffer) {
+        InputStream in;
+        if (buffer.hasArray()) {
+            in = new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            in = new ByteArrayInputStream(bytes);
+        }
+        buffer.position(buffer.limit());
+        return in;
+    }
+
+}
@@ -0,0 +1,94 @@
+package ru.itis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.FutureTask;
+
+// Reads the decoded form of codeIn, a background thread decodes it into a pipe as the bytes are consumed
+public class CodecInputStream extends InputStream {
+
+    private static final int PIPE_SIZE = 1 << 16;
+
+    private final InputStream codeIn;
+    private final PipedInputStream pipe;
+    private final FutureTask<Void> task;
+    private boolean closed;
+
+    public CodecInputStream(Codec codec, InputStream codeIn) throws IOException {
+        this(codec, codeIn, PIPE_SIZE);
+    }
+
+    // The decoder waits when pipeSize decoded bytes are not read yet
+    public CodecInputStream(Codec codec, InputStream codeIn, int pipeSize) throws IOException {
+        this.codeIn = codeIn;
+        PipedOutputStream out = new PipedOutputStream();
+        pipe = new PipedInputStream(out, pipeSize);
+        task = new FutureTask<>(() -> {
+            // Closing the pipe lets the reader see the end of the data even when the decoder fails
+            try {
+                codec.decode(codeIn, out);
+            } finally {
+                out.close();
+            }
+            return null;
+        });
+        Thread thread = new Thread(task, "codec-decoder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b;
+        try {
+            b = pipe.read();
+        } catch (IOException e) {
+            throw failure(e);
+        }
+        // The end of the pipe is also reached when the decoder fails
+        if (b == -1) {
+            CodecOutputStream.await(task);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int read;
+        try {
+            read = pipe.read(bytes, offset, length);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+        if (read == -1) {
+            CodecOutputStream.await(task);
+        }
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return pipe.available();
+    }
+
+    // Closing before the end stops the decoder: its next write to the pipe fails
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pipe.close();
+        codeIn.close();
+    }
+
+    private IOException failure(IOException e) throws IOException {
+        if (!closed) {
+            CodecOutputStream.await(task);
+        }
+        return e;
+    }
+
+}
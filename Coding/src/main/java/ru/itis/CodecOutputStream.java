@@ -0,0 +1,92 @@
+package ru.itis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+// Bytes written here are encoded into codeOut by a background thread that reads them through a pipe,
+// so the data never has to be held in memory as a whole. close waits until the whole code is written
+public class CodecOutputStream extends OutputStream {
+
+    private static final int PIPE_SIZE = 1 << 16;
+
+    private final PipedOutputStream pipe;
+    private final FutureTask<Void> task;
+    private boolean closed;
+
+    public CodecOutputStream(Codec codec, OutputStream codeOut) throws IOException {
+        PipedInputStream in = new PipedInputStream(PIPE_SIZE);
+        pipe = new PipedOutputStream(in);
+        task = new FutureTask<>(() -> {
+            // The pipe is closed even when the encoder fails, otherwise a writer could wait for space forever
+            try {
+                codec.encode(in, codeOut);
+            } finally {
+                in.close();
+            }
+            return null;
+        });
+        Thread thread = new Thread(task, "codec-encoder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        try {
+            pipe.write(b);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        try {
+            pipe.write(bytes, offset, length);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        pipe.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pipe.close();
+        await(task);
+    }
+
+    // The pipe breaks only when the encoder stops, its own error is more useful
+    private IOException failure(IOException e) throws IOException {
+        if (!closed) {
+            await(task);
+        }
+        return e;
+    }
+
+    static void await(FutureTask<Void> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+}
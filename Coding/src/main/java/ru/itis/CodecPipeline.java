@@ -0,0 +1,121 @@
+package ru.itis;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Chain of codecs: encode runs the stages in order and decode runs them backwards. In the threaded mode, the default,
+// every stage but the last one gets its own thread and the stages are connected by pipes of bufferSize bytes, so the
+// data passes all of them in one streaming pass with bounded memory. threaded(false) runs the stages one after another
+// and keeps the whole output of every stage in memory, it is meant for small inputs only
+@Getter
+public class CodecPipeline implements Codec {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final List<Codec> stages;
+    private final boolean threaded;
+    private final int bufferSize;
+
+    @Builder
+    private CodecPipeline(List<Codec> stages, boolean threaded, int bufferSize) {
+        this.stages = stages == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(stages));
+        this.threaded = threaded;
+        this.bufferSize = bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE;
+    }
+
+    public static class CodecPipelineBuilder {
+
+        private boolean threaded = true;
+
+        // Appends one stage, the list given to stages(...) is not modified
+        public CodecPipelineBuilder stage(Codec stage) {
+            stages = stages == null ? new ArrayList<>() : new ArrayList<>(stages);
+            stages.add(stage);
+            return this;
+        }
+
+    }
+
+    public void encode(String filePath, String codeFilePath) throws IOException {
+        encode(new FileInputStream(filePath), new BufferedOutputStream(new FileOutputStream(codeFilePath)));
+    }
+
+    public void decode(String codeFilePath, String filePath) throws IOException {
+        decode(new FileInputStream(codeFilePath), new BufferedOutputStream(new FileOutputStream(filePath)));
+    }
+
+    @Override
+    public void encode(InputStream in, OutputStream codeOut) throws IOException {
+        if (stages.isEmpty()) {
+            copy(in, codeOut);
+            return;
+        }
+        InputStream source = in;
+        for (int i = 0; i < stages.size() - 1; i++) {
+            source = encodedBy(stages.get(i), source);
+        }
+        stages.get(stages.size() - 1).encode(source, codeOut);
+    }
+
+    @Override
+    public void decode(InputStream codeIn, OutputStream out) throws IOException {
+        if (stages.isEmpty()) {
+            copy(codeIn, out);
+            return;
+        }
+        InputStream source = codeIn;
+        for (int i = stages.size() - 1; i > 0; i--) {
+            source = decodedBy(stages.get(i), source);
+        }
+        stages.get(0).decode(source, out);
+    }
+
+    private InputStream encodedBy(Codec stage, InputStream source) throws IOException {
+        if (threaded) {
+            // Decoding with the swapped codec is encoding with the stage
+            return new CodecInputStream(swapped(stage), source, bufferSize);
+        }
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        stage.encode(source, code);
+        return new ByteArrayInputStream(code.toByteArray());
+    }
+
+    private InputStream decodedBy(Codec stage, InputStream source) throws IOException {
+        if (threaded) {
+            return new CodecInputStream(stage, source, bufferSize);
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        stage.decode(source, data);
+        return new ByteArrayInputStream(data.toByteArray());
+    }
+
+    private static Codec swapped(Codec codec) {
+        return new Codec() {
+            @Override
+            public void encode(InputStream in, OutputStream codeOut) throws IOException {
+                codec.decode(in, codeOut);
+            }
+
+            @Override
+            public void decode(InputStream codeIn, OutputStream out) throws IOException {
+                codec.encode(codeIn, out);
+            }
+        };
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+        in.close();
+        out.close();
+    }
+
+}
@@ -0,0 +1,16 @@
+package ru.itis;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Entry of the block index: where the coded block starts, its sizes and the CRC-32C of the coded bytes
+@AllArgsConstructor
+@Getter
+public class ContainerBlock {
+
+    private final long offset;
+    private final int rawSize;
+    private final int codedSize;
+    private final int checksum;
+
+}
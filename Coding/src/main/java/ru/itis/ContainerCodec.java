@@ -0,0 +1,61 @@
+package ru.itis;
+
+import java.io.IOException;
+
+// Codecs a container can hold; the id is written to the header and the parameter is passed to the codec
+public enum ContainerCodec {
+
+    STORED(0, 0),
+    HUFFMAN(1, 0),
+    // Parameter is the context order of the PPM model
+    ARITHMETIC(2, 2),
+    // Parameter is the block size of the transform
+    BWT(3, 1 << 20),
+    // Parameter is the interleaving depth of the (7,4) code
+    HAMMING(4, 1),
+    TANS(5, 0);
+
+    private final int id;
+    private final int defaultParameter;
+
+    ContainerCodec(int id, int defaultParameter) {
+        this.id = id;
+        this.defaultParameter = defaultParameter;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getDefaultParameter() {
+        return defaultParameter;
+    }
+
+    // Codecs are not shared between threads, every worker creates its own one
+    public Codec create(int parameter) {
+        switch (this) {
+            case HUFFMAN:
+                return new HuffmanCoder(1);
+            case ARITHMETIC:
+                return new ArithmeticCoder(parameter, 64L << 20);
+            case BWT:
+                return new BurrowsWheelerTransformCoder(parameter, 1, 1);
+            case HAMMING:
+                return new HammingCoder(parameter);
+            case TANS:
+                return new TansCoder();
+            default:
+                return CodecPipeline.builder().build();
+        }
+    }
+
+    public static ContainerCodec fromId(int id) throws IOException {
+        for (ContainerCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IOException("Incorrect code file");
+    }
+
+}
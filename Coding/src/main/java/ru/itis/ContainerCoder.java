@@ -0,0 +1,118 @@
+package ru.itis;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Container format: header (magic, version, codec id, codec parameter, block size), blocks coded independently
+// with the codec, block index (offset, raw size, coded size, CRC-32C of the coded block for every block) and
+// trailer (block count, index offset, magic). Blocks are coded by a pool of workers, ContainerReader.decodeTo
+// decodes them the same way
+public class ContainerCoder {
+
+    static final int MAGIC = 0x49544331;
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 14;
+    static final int INDEX_ENTRY_SIZE = 20;
+    static final int TRAILER_SIZE = 16;
+    private static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private final ContainerCodec codec;
+    private final int parameter;
+    private final int blockSize;
+    private final int parallelism;
+
+    public ContainerCoder(ContainerCodec codec) {
+        this(codec, codec.getDefaultParameter(), DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ContainerCoder(ContainerCodec codec, int parameter, int blockSize, int parallelism) {
+        this.codec = codec;
+        this.parameter = parameter;
+        this.blockSize = blockSize;
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    public void encode(String filePath, String codeFilePath) throws IOException {
+        InputStream in = new FileInputStream(filePath);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(codeFilePath)));
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        ThreadLocal<Codec> codecs = ThreadLocal.withInitial(() -> codec.create(parameter));
+        ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        ArrayDeque<Integer> rawSizes = new ArrayDeque<>();
+        ArrayList<ContainerBlock> index = new ArrayList<>();
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(codec.getId());
+            out.writeInt(parameter);
+            out.writeInt(blockSize);
+            long position = HEADER_SIZE;
+            while (true) {
+                byte[] block = new byte[blockSize];
+                int blockLength = readBlock(in, block);
+                if (blockLength == 0) {
+                    break;
+                }
+                if (inFlight.size() == 2 * parallelism) {
+                    position = writeBlock(out, position, rawSizes.poll(), await(inFlight.poll()), index);
+                }
+                rawSizes.add(blockLength);
+                byte[] data = blockLength == block.length ? block : Arrays.copyOf(block, blockLength);
+                inFlight.add(executor.submit(() -> codecs.get().encode(data)));
+            }
+            while (!inFlight.isEmpty()) {
+                position = writeBlock(out, position, rawSizes.poll(), await(inFlight.poll()), index);
+            }
+            for (ContainerBlock entry : index) {
+                out.writeLong(entry.getOffset());
+                out.writeInt(entry.getRawSize());
+                out.writeInt(entry.getCodedSize());
+                out.writeInt(entry.getChecksum());
+            }
+            out.writeInt(index.size());
+            out.writeLong(position);
+            out.writeInt(MAGIC);
+        } finally {
+            executor.shutdownNow();
+            in.close();
+            out.close();
+        }
+    }
+
+    // Blocks go out in the order they were read, so the offset of a block is known when it is written
+    private long writeBlock(DataOutputStream out, long position, int rawSize, byte[] code, ArrayList<ContainerBlock> index) throws IOException {
+        index.add(new ContainerBlock(position, rawSize, code.length, (int) Crc32c.of(code, 0, code.length)));
+        out.write(code);
+        return position + code.length;
+    }
+
+    static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while coding blocks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private int readBlock(InputStream in, byte[] block) throws IOException {
+        int length = 0;
+        int read;
+        while (length < block.length && (read = in.read(block, length, block.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+}
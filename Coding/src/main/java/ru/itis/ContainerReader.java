@@ -0,0 +1,164 @@
+package ru.itis;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Opens a container through its trailer and block index, so any block can be read without touching the others
+public class ContainerReader implements Closeable {
+
+    private final RandomAccessFile file;
+    private final ContainerCodec codec;
+    private final int parameter;
+    private final int blockSize;
+    private final List<ContainerBlock> blocks;
+    private final long rawSize;
+
+    public ContainerReader(String codeFilePath) throws IOException {
+        file = new RandomAccessFile(codeFilePath, "r");
+        try {
+            if (file.length() < ContainerCoder.HEADER_SIZE + ContainerCoder.TRAILER_SIZE || file.readInt() != ContainerCoder.MAGIC
+                    || file.readByte() != ContainerCoder.VERSION) {
+                throw new IOException("Incorrect code file");
+            }
+            codec = ContainerCodec.fromId(file.readByte());
+            parameter = file.readInt();
+            blockSize = file.readInt();
+            file.seek(file.length() - ContainerCoder.TRAILER_SIZE);
+            int blockCount = file.readInt();
+            long indexOffset = file.readLong();
+            if (file.readInt() != ContainerCoder.MAGIC || blockCount < 0 || indexOffset < ContainerCoder.HEADER_SIZE
+                    || indexOffset + (long) blockCount * ContainerCoder.INDEX_ENTRY_SIZE != file.length() - ContainerCoder.TRAILER_SIZE) {
+                throw new IOException("Incorrect code file");
+            }
+            // The index is read in one go
+            byte[] index = new byte[blockCount * ContainerCoder.INDEX_ENTRY_SIZE];
+            file.seek(indexOffset);
+            file.readFully(index);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(index));
+            ArrayList<ContainerBlock> entries = new ArrayList<>(blockCount);
+            long total = 0L;
+            for (int i = 0; i < blockCount; i++) {
+                ContainerBlock block = new ContainerBlock(in.readLong(), in.readInt(), in.readInt(), in.readInt());
+                if (block.getOffset() < ContainerCoder.HEADER_SIZE || block.getCodedSize() < 0 || block.getRawSize() < 0
+                        || block.getOffset() + block.getCodedSize() > indexOffset) {
+                    throw new IOException("Incorrect code file");
+                }
+                entries.add(block);
+                total += block.getRawSize();
+            }
+            blocks = Collections.unmodifiableList(entries);
+            rawSize = total;
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public ContainerCodec getCodec() {
+        return codec;
+    }
+
+    public int getParameter() {
+        return parameter;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public List<ContainerBlock> getBlocks() {
+        return blocks;
+    }
+
+    public long getRawSize() {
+        return rawSize;
+    }
+
+    public synchronized byte[] readCodedBlock(int blockIndex) throws IOException {
+        ContainerBlock block = blocks.get(blockIndex);
+        byte[] code = new byte[block.getCodedSize()];
+        file.seek(block.getOffset());
+        file.readFully(code);
+        return code;
+    }
+
+    public boolean isIntact(int blockIndex) throws IOException {
+        byte[] code = readCodedBlock(blockIndex);
+        return (int) Crc32c.of(code, 0, code.length) == blocks.get(blockIndex).getChecksum();
+    }
+
+    // Numbers of blocks whose checksum does not match, nothing is decoded
+    public List<Integer> findCorruptedBlocks() throws IOException {
+        ArrayList<Integer> corrupted = new ArrayList<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            if (!isIntact(i)) {
+                corrupted.add(i);
+            }
+        }
+        return corrupted;
+    }
+
+    public byte[] decodeBlock(int blockIndex, Codec decoder) throws IOException {
+        return decodeBlock(blocks.get(blockIndex), readCodedBlock(blockIndex), decoder);
+    }
+
+    public void decodeTo(String filePath) throws IOException {
+        decodeTo(filePath, Runtime.getRuntime().availableProcessors());
+    }
+
+    // The codec is taken from the header, every block is checked against its checksum before decoding;
+    // blocks are decoded by a pool of workers and written in order
+    public void decodeTo(String filePath, int parallelism) throws IOException {
+        int workers = Math.max(parallelism, 1);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        ThreadLocal<Codec> codecs = ThreadLocal.withInitial(() -> codec.create(parameter));
+        ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < blocks.size(); i++) {
+                if (inFlight.size() == 2 * workers) {
+                    out.write(ContainerCoder.await(inFlight.poll()));
+                }
+                ContainerBlock block = blocks.get(i);
+                byte[] code = readCodedBlock(i);
+                inFlight.add(executor.submit(() -> decodeBlock(block, code, codecs.get())));
+            }
+            while (!inFlight.isEmpty()) {
+                out.write(ContainerCoder.await(inFlight.poll()));
+            }
+        } finally {
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+
+    static byte[] decodeBlock(ContainerBlock block, byte[] code, Codec decoder) throws IOException {
+        if ((int) Crc32c.of(code, 0, code.length) != block.getChecksum()) {
+            throw new IOException("Incorrect code file");
+        }
+        byte[] data = decoder.decode(code);
+        if (data.length != block.getRawSize()) {
+            throw new IOException("Incorrect code file");
+        }
+        return data;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+}
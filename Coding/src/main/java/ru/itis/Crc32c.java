@@ -0,0 +1,104 @@
+package ru.itis;
+
+import java.lang.reflect.Constructor;
+import java.util.zip.Checksum;
+
+// CRC-32C (Castagnoli) with slicing-by-8 tables: eight bytes are folded into the value with eight table reads
+public class Crc32c implements Checksum {
+
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int[][] TABLES = buildTables();
+    // java.util.zip.CRC32C of Java 9 and later uses the CRC32 instructions of the processor
+    private static final Constructor<? extends Checksum> INTRINSIC = findIntrinsic();
+
+    private int crc;
+
+    public Crc32c() {
+        reset();
+    }
+
+    // The library checksum when the runtime has one, the tables otherwise
+    public static Checksum create() {
+        if (INTRINSIC != null) {
+            try {
+                return INTRINSIC.newInstance();
+            } catch (ReflectiveOperationException ignored) {
+            }
+        }
+        return new Crc32c();
+    }
+
+    public static long of(byte[] bytes, int offset, int length) {
+        Checksum checksum = create();
+        checksum.update(bytes, offset, length);
+        return checksum.getValue();
+    }
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+        int[] t0 = TABLES[0];
+        int[] t1 = TABLES[1];
+        int[] t2 = TABLES[2];
+        int[] t3 = TABLES[3];
+        int[] t4 = TABLES[4];
+        int[] t5 = TABLES[5];
+        int[] t6 = TABLES[6];
+        int[] t7 = TABLES[7];
+        int c = crc;
+        int i = offset;
+        int end = offset + length;
+        for (; end - i >= 8; i += 8) {
+            int low = c ^ ((bytes[i] & 0xFF) | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF) << 16 | (bytes[i + 3] & 0xFF) << 24);
+            int high = (bytes[i + 4] & 0xFF) | (bytes[i + 5] & 0xFF) << 8 | (bytes[i + 6] & 0xFF) << 16 | (bytes[i + 7] & 0xFF) << 24;
+            c = t7[low & 0xFF] ^ t6[(low >>> 8) & 0xFF] ^ t5[(low >>> 16) & 0xFF] ^ t4[low >>> 24]
+                    ^ t3[high & 0xFF] ^ t2[(high >>> 8) & 0xFF] ^ t1[(high >>> 16) & 0xFF] ^ t0[high >>> 24];
+        }
+        for (; i < end; i++) {
+            c = (c >>> 8) ^ t0[(c ^ bytes[i]) & 0xFF];
+        }
+        crc = c;
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+
+    private static Constructor<? extends Checksum> findIntrinsic() {
+        try {
+            return Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class).getConstructor();
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // TABLES[k][b] is the CRC of byte b followed by k zero bytes
+    private static int[][] buildTables() {
+        int[][] tables = new int[8][256];
+        for (int b = 0; b < 256; b++) {
+            int c = b;
+            for (int bit = 0; bit < 8; bit++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLYNOMIAL : c >>> 1;
+            }
+            tables[0][b] = c;
+        }
+        for (int k = 1; k < 8; k++) {
+            for (int b = 0; b < 256; b++) {
+                int previous = tables[k - 1][b];
+                tables[k][b] = (previous >>> 8) ^ tables[0][previous & 0xFF];
+            }
+        }
+        return tables;
+    }
+
+}
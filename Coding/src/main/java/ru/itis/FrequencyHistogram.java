@@ -0,0 +1,277 @@
+package ru.itis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class FrequencyHistogram {
+
+    public static final int BYTE_ALPHABET_SIZE = 256;
+    public static final int CHARACTER_ALPHABET_SIZE = 65536;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long MIN_RANGE_SIZE = 1 << 20;
+
+    private final int parallelism;
+
+    public FrequencyHistogram() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public FrequencyHistogram(int parallelism) {
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    public long[] countBytes(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long[] bounds = splitIntoRanges(channel, false);
+            ArrayList<Callable<long[]>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(() -> countBytes(channel, start, end));
+            }
+            long[] rates = new long[BYTE_ALPHABET_SIZE];
+            for (long[] workerRates : runAll(tasks)) {
+                for (int i = 0; i < BYTE_ALPHABET_SIZE; i++) {
+                    rates[i] += workerRates[i];
+                }
+            }
+            return rates;
+        }
+    }
+
+    // Counts every byte together with the byte before it, index is (previous << 8 | current);
+    // the first byte of the file is counted after a zero byte
+    public long[] countBytePairs(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long[] bounds = splitIntoRanges(channel, false);
+            ArrayList<Callable<long[]>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(() -> countBytePairs(channel, start, end));
+            }
+            long[] rates = new long[BYTE_ALPHABET_SIZE * BYTE_ALPHABET_SIZE];
+            for (long[] workerRates : runAll(tasks)) {
+                for (int i = 0; i < rates.length; i++) {
+                    rates[i] += workerRates[i];
+                }
+            }
+            return rates;
+        }
+    }
+
+    // Counts characters the way they are seen through readLine(): every line ends with a single '\n'
+    public long[] countCharacters(String filePath) throws IOException {
+        Charset charset = Charset.defaultCharset();
+        // Ranges are split right after '\n' bytes, that is a character boundary only for ASCII compatible charsets
+        boolean splittable = Arrays.equals("\n".getBytes(charset), new byte[]{'\n'});
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long[] bounds = splittable ? splitIntoRanges(channel, true) : new long[]{0, channel.size()};
+            ArrayList<Callable<long[]>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(() -> countCharacters(channel, start, end, charset));
+            }
+            long[] rates = new long[CHARACTER_ALPHABET_SIZE];
+            int lastCharacter = '\n';
+            for (long[] workerRates : runAll(tasks)) {
+                for (int i = 0; i < CHARACTER_ALPHABET_SIZE; i++) {
+                    rates[i] += workerRates[i];
+                }
+                // Last cell holds the last character of the range or -1 for an empty range
+                if (workerRates[CHARACTER_ALPHABET_SIZE] >= 0) {
+                    lastCharacter = (int) workerRates[CHARACTER_ALPHABET_SIZE];
+                }
+            }
+            if (lastCharacter != '\n' && lastCharacter != '\r') {
+                rates['\n']++;
+            }
+            return rates;
+        }
+    }
+
+    private long[] splitIntoRanges(FileChannel channel, boolean alignToLines) throws IOException {
+        long size = channel.size();
+        int ranges = (int) Math.max(1, Math.min(parallelism, size / MIN_RANGE_SIZE));
+        long[] bounds = new long[ranges + 1];
+        bounds[ranges] = size;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int i = 1; i < ranges; i++) {
+            long bound = Math.max(size / ranges * i, bounds[i - 1]);
+            if (alignToLines) {
+                bound = findLineEnd(channel, bound, buffer);
+            }
+            bounds[i] = bound;
+        }
+        return bounds;
+    }
+
+    private long findLineEnd(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (true) {
+            buffer.clear();
+            int length = channel.read(buffer, position);
+            if (length <= 0) {
+                return channel.size();
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+    }
+
+    private long[] countBytes(FileChannel channel, long start, long end) throws IOException {
+        // Four interleaved tables break the store-to-load dependency on repeated bytes
+        int[] counts = new int[4 * BYTE_ALPHABET_SIZE];
+        long[] rates = new long[BYTE_ALPHABET_SIZE];
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        long position = start;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+            int length = channel.read(buffer, position);
+            if (length <= 0) {
+                break;
+            }
+            int i = 0;
+            for (; i + 3 < length; i += 4) {
+                counts[bytes[i] & 0xFF]++;
+                counts[BYTE_ALPHABET_SIZE + (bytes[i + 1] & 0xFF)]++;
+                counts[2 * BYTE_ALPHABET_SIZE + (bytes[i + 2] & 0xFF)]++;
+                counts[3 * BYTE_ALPHABET_SIZE + (bytes[i + 3] & 0xFF)]++;
+            }
+            for (; i < length; i++) {
+                counts[bytes[i] & 0xFF]++;
+            }
+            for (int j = 0; j < counts.length; j++) {
+                rates[j & (BYTE_ALPHABET_SIZE - 1)] += counts[j];
+            }
+            Arrays.fill(counts, 0);
+            position += length;
+        }
+        return rates;
+    }
+
+    private long[] countBytePairs(FileChannel channel, long start, long end) throws IOException {
+        long[] rates = new long[BYTE_ALPHABET_SIZE * BYTE_ALPHABET_SIZE];
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        int previous = 0;
+        if (start > 0) {
+            buffer.limit(1);
+            channel.read(buffer, start - 1);
+            previous = bytes[0] & 0xFF;
+        }
+        long position = start;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+            int length = channel.read(buffer, position);
+            if (length <= 0) {
+                break;
+            }
+            for (int i = 0; i < length; i++) {
+                int current = bytes[i] & 0xFF;
+                rates[(previous << 8) | current]++;
+                previous = current;
+            }
+            position += length;
+        }
+        return rates;
+    }
+
+    private long[] countCharacters(FileChannel channel, long start, long end, Charset charset) throws IOException {
+        long[] rates = new long[CHARACTER_ALPHABET_SIZE + 1];
+        Reader in = new InputStreamReader(new ChannelRangeInputStream(channel, start, end), charset);
+        char[] buffer = new char[BUFFER_SIZE];
+        int lastCharacter = -1;
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            for (int i = 0; i < length; i++) {
+                char c = buffer[i];
+                if (c == '\r') {
+                    rates['\n']++;
+                } else if (c != '\n' || lastCharacter != '\r') {
+                    rates[c]++;
+                }
+                lastCharacter = c;
+            }
+        }
+        in.close();
+        rates[CHARACTER_ALPHABET_SIZE] = lastCharacter;
+        return rates;
+    }
+
+    private ArrayList<long[]> runAll(ArrayList<Callable<long[]>> tasks) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()));
+        try {
+            ArrayList<long[]> results = new ArrayList<>();
+            for (Future<long[]> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while counting frequencies", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static class ChannelRangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        private ChannelRangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int length = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (length > 0) {
+                position += length;
+            }
+            return length;
+        }
+
+    }
+
+}
@@ -3,8 +3,34 @@ package ru.itis;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 
-public class HammingCoder {
+// encode/decode over file paths keep the original text format of bit strings, the Codec stream methods
+// write the binary (7,4) format, which encodeBinary/decodeBinary write to and read from files
+public class HammingCoder implements Codec {
+
+    private static final int GROUP_SIZE = 4;
+    private static final int CODE_GROUP_SIZE = 7;
+    private static final int CODEWORD_BITS = 7;
+    private static final int BYTE_CODE_BITS = 14;
+    private static final int GROUPS_PER_BUFFER = 1 << 14;
+    private static final int CORRECTED = 0x10;
+    private static final int WORD_SIZE = 8;
+    private static final int SECDED_BLOCK_SIZE = 9;
+    private static final int SECDED_PARITY_BITS = 7;
+    private static final int SECDED_POSITIONS = 72;
+
+    // Codeword of every nibble, bits from the highest: p1 p2 d1 p3 d2 d3 d4
+    private static final int[] NIBBLE_CODEWORDS = buildNibbleCodewords();
+    // Both codewords of every byte, the high nibble goes first
+    private static final int[] BYTE_CODEWORDS = buildByteCodewords();
+    // Corrected nibble of every received 7-bit word, CORRECTED marks words with a flipped bit
+    private static final byte[] CORRECTIONS = buildCorrections();
+    // Data bits covered by each Hamming parity bit of the (72,64) code
+    private static final long[] SECDED_MASKS = new long[SECDED_PARITY_BITS];
+    // Data bit at every code position, -1 for parity positions and positions past the code
+    private static final int[] SECDED_DATA_BITS = buildSecdedLayout();
 
     private final byte[] masks = new byte[]{
             (byte) 0b10000000,
@@ -17,7 +43,15 @@ public class HammingCoder {
             0b00000001
     };
 
+    private final int interleavingDepth;
+
     public HammingCoder() {
+        this(1);
+    }
+
+    // Binary and SECDED modes interleave the codewords of every buffer with this depth, 1 keeps them in place
+    public HammingCoder(int interleavingDepth) {
+        this.interleavingDepth = Math.max(interleavingDepth, 1);
     }
 
     public void encode(String filePath, String codeFilePath) throws IOException {
@@ -28,6 +62,350 @@ public class HammingCoder {
         readCodeFile(codeFilePath, filePath);
     }
 
+    // Codec streams use the binary (7,4) mode, the report of the decoder is dropped
+    @Override
+    public void encode(InputStream in, OutputStream codeOut) throws IOException {
+        encodeBinary(in, codeOut);
+    }
+
+    @Override
+    public void decode(InputStream codeIn, OutputStream out) throws IOException {
+        decodeBinary(codeIn, out);
+    }
+
+    // Binary mode: every 4 bytes become 56 code bits packed into 7 bytes, a tail of k bytes takes 2k bytes
+    public void encodeBinary(String filePath, String codeFilePath) throws IOException {
+        encodeBinary(new FileInputStream(filePath), new FileOutputStream(codeFilePath));
+    }
+
+    public void encodeBinary(InputStream in, OutputStream out) throws IOException {
+        BlockInterleaver interleaver = new BlockInterleaver(interleavingDepth, CODEWORD_BITS);
+        byte[] buffer = new byte[GROUP_SIZE * GROUPS_PER_BUFFER];
+        byte[] code = new byte[CODE_GROUP_SIZE * GROUPS_PER_BUFFER];
+        byte[] sent = new byte[code.length];
+        int length;
+        while ((length = readBlock(in, buffer)) > 0) {
+            int codeLength = encodeGroups(buffer, length, code);
+            interleaver.interleave(code, 8L * codeLength, sent);
+            out.write(sent, 0, codeLength);
+        }
+        in.close();
+        out.close();
+    }
+
+    // Every 7-bit codeword counts as a block of the report
+    public HammingDecodingReport decodeBinary(String codeFilePath, String filePath) throws IOException {
+        return decodeBinary(new FileInputStream(codeFilePath), new FileOutputStream(filePath));
+    }
+
+    public HammingDecodingReport decodeBinary(InputStream in, OutputStream out) throws IOException {
+        HammingDecodingReport report = new HammingDecodingReport();
+        BlockInterleaver interleaver = new BlockInterleaver(interleavingDepth, CODEWORD_BITS);
+        byte[] received = new byte[CODE_GROUP_SIZE * GROUPS_PER_BUFFER];
+        byte[] code = new byte[received.length];
+        byte[] buffer = new byte[GROUP_SIZE * GROUPS_PER_BUFFER];
+        int length;
+        while ((length = readBlock(in, received)) > 0) {
+            interleaver.deinterleave(received, 8L * length, code);
+            out.write(buffer, 0, decodeGroups(code, length, buffer, report));
+        }
+        in.close();
+        out.close();
+        return report;
+    }
+
+    // SECDED mode: every 8 bytes are followed by a check byte with 7 Hamming parity bits and an overall
+    // parity bit, a tail of k bytes gets its own check byte
+    public void encodeSecded(String filePath, String codeFilePath) throws IOException {
+        encodeSecded(new FileInputStream(filePath), new FileOutputStream(codeFilePath));
+    }
+
+    public void encodeSecded(InputStream in, OutputStream out) throws IOException {
+        BlockInterleaver interleaver = new BlockInterleaver(interleavingDepth, SECDED_BLOCK_SIZE * 8);
+        byte[] buffer = new byte[WORD_SIZE * GROUPS_PER_BUFFER];
+        byte[] code = new byte[SECDED_BLOCK_SIZE * GROUPS_PER_BUFFER];
+        byte[] sent = new byte[code.length];
+        int length;
+        while ((length = readBlock(in, buffer)) > 0) {
+            int codeLength = encodeSecdedBlocks(buffer, length, code);
+            interleaver.interleave(code, 8L * codeLength, sent);
+            out.write(sent, 0, codeLength);
+        }
+        in.close();
+        out.close();
+    }
+
+    // Single errors are corrected, double errors are detected and reported; such blocks are written as read
+    public HammingDecodingReport decodeSecded(String codeFilePath, String filePath) throws IOException {
+        return decodeSecded(new FileInputStream(codeFilePath), new FileOutputStream(filePath));
+    }
+
+    public HammingDecodingReport decodeSecded(InputStream in, OutputStream out) throws IOException {
+        HammingDecodingReport report = new HammingDecodingReport();
+        BlockInterleaver interleaver = new BlockInterleaver(interleavingDepth, SECDED_BLOCK_SIZE * 8);
+        byte[] received = new byte[SECDED_BLOCK_SIZE * GROUPS_PER_BUFFER];
+        byte[] code = new byte[received.length];
+        byte[] buffer = new byte[WORD_SIZE * GROUPS_PER_BUFFER];
+        int length;
+        while ((length = readBlock(in, received)) > 0) {
+            interleaver.deinterleave(received, 8L * length, code);
+            out.write(buffer, 0, decodeSecdedBlocks(code, length, buffer, report));
+        }
+        in.close();
+        out.close();
+        return report;
+    }
+
+    // Sends data through the channel with the (7,4) or the SECDED code and compares what comes out
+    public ChannelSimulationReport simulate(byte[] data, NoisyChannel channel, boolean secded) throws IOException {
+        int codewordBits = secded ? SECDED_BLOCK_SIZE * 8 : CODEWORD_BITS;
+        BlockInterleaver interleaver = new BlockInterleaver(interleavingDepth, codewordBits);
+        int codeSize = secded
+                ? data.length / WORD_SIZE * SECDED_BLOCK_SIZE + (data.length % WORD_SIZE == 0 ? 0 : data.length % WORD_SIZE + 1)
+                : data.length / GROUP_SIZE * CODE_GROUP_SIZE + 2 * (data.length % GROUP_SIZE);
+        byte[] code = new byte[codeSize];
+        byte[] sent = new byte[codeSize];
+        long start = System.nanoTime();
+        int codeLength = secded ? encodeSecdedBlocks(data, data.length, code) : encodeGroups(data, data.length, code);
+        interleaver.interleave(code, 8L * codeLength, sent);
+        long encodeTime = System.nanoTime() - start;
+        long flippedBits = channel.corrupt(sent, codeLength);
+        byte[] decoded = new byte[data.length];
+        HammingDecodingReport report = new HammingDecodingReport();
+        start = System.nanoTime();
+        interleaver.deinterleave(sent, 8L * codeLength, code);
+        if (secded) {
+            decodeSecdedBlocks(code, codeLength, decoded, report);
+        } else {
+            decodeGroups(code, codeLength, decoded, report);
+        }
+        long decodeTime = System.nanoTime() - start;
+        // A block is a data word for SECDED and a nibble for the (7,4) code
+        HashSet<Long> detected = new HashSet<>(report.getUncorrectableBlockIndices());
+        long silentBlocks = 0L;
+        for (int i = 0; i < data.length; i++) {
+            int difference = (data[i] ^ decoded[i]) & 0xFF;
+            if (secded) {
+                long block = i / WORD_SIZE;
+                if (difference != 0 && !detected.contains(block)) {
+                    silentBlocks++;
+                    i = (int) Math.min(data.length, (block + 1) * WORD_SIZE) - 1;
+                }
+            } else {
+                silentBlocks += ((difference & 0xF0) != 0 ? 1 : 0) + ((difference & 0x0F) != 0 ? 1 : 0);
+            }
+        }
+        return ChannelSimulationReport.builder()
+                .blocks(report.getBlocks())
+                .flippedBits(flippedBits)
+                .correctedBlocks(report.getCorrectedBlocks())
+                .detectedBlocks(report.getUncorrectableBlocks())
+                .silentBlocks(silentBlocks)
+                .encodeMegabytesPerSecond(megabytesPerSecond(data.length, encodeTime))
+                .decodeMegabytesPerSecond(megabytesPerSecond(data.length, decodeTime))
+                .build();
+    }
+
+    private double megabytesPerSecond(long bytes, long nanoseconds) {
+        return bytes * 1e9 / (1 << 20) / Math.max(nanoseconds, 1);
+    }
+
+    private int encodeSecdedBlocks(byte[] bytes, int length, byte[] code) {
+        int position = 0;
+        for (int i = 0; i < length; i += WORD_SIZE) {
+            int size = Math.min(WORD_SIZE, length - i);
+            long word = 0L;
+            for (int j = 0; j < WORD_SIZE; j++) {
+                word = (word << 8) | (j < size ? bytes[i + j] & 0xFF : 0);
+            }
+            System.arraycopy(bytes, i, code, position, size);
+            position += size;
+            code[position++] = (byte) secdedCheck(word);
+        }
+        return position;
+    }
+
+    private int decodeSecdedBlocks(byte[] code, int length, byte[] bytes, HammingDecodingReport report) throws IOException {
+        int position = 0;
+        long blockIndex = report.getBlocks();
+        for (int i = 0; i < length; i += SECDED_BLOCK_SIZE) {
+            int size = Math.min(SECDED_BLOCK_SIZE, length - i) - 1;
+            if (size == 0) {
+                throw new IOException("Incorrect code file");
+            }
+            long word = 0L;
+            for (int j = 0; j < WORD_SIZE; j++) {
+                word = (word << 8) | (j < size ? code[i + j] & 0xFF : 0);
+            }
+            int check = code[i + size] & 0xFF;
+            int syndrome = (secdedCheck(word) ^ check) & 0x7F;
+            int parity = (Long.bitCount(word) + Integer.bitCount(check)) & 1;
+            if (parity == 1) {
+                // An odd number of flipped bits, taken as a single error
+                if (syndrome >= SECDED_POSITIONS) {
+                    report.addUncorrectable(blockIndex);
+                } else {
+                    if (SECDED_DATA_BITS[syndrome] >= 0) {
+                        word ^= 1L << SECDED_DATA_BITS[syndrome];
+                    }
+                    report.addCorrected(1);
+                }
+            } else if (syndrome != 0) {
+                report.addUncorrectable(blockIndex);
+            }
+            for (int j = 0; j < size; j++) {
+                bytes[position++] = (byte) (word >>> (56 - 8 * j));
+            }
+            blockIndex++;
+            report.addBlocks(1);
+        }
+        return position;
+    }
+
+    private int encodeGroups(byte[] bytes, int length, byte[] code) {
+        int position = 0;
+        int i = 0;
+        for (; i + GROUP_SIZE <= length; i += GROUP_SIZE) {
+            long value = (long) BYTE_CODEWORDS[bytes[i] & 0xFF] << 42
+                    | (long) BYTE_CODEWORDS[bytes[i + 1] & 0xFF] << 28
+                    | (long) BYTE_CODEWORDS[bytes[i + 2] & 0xFF] << 14
+                    | BYTE_CODEWORDS[bytes[i + 3] & 0xFF];
+            for (int j = CODE_GROUP_SIZE - 1; j >= 0; j--) {
+                code[position + j] = (byte) value;
+                value >>>= 8;
+            }
+            position += CODE_GROUP_SIZE;
+        }
+        int tail = length - i;
+        if (tail > 0) {
+            // 14 bits per byte padded with zeros up to 2 bytes per byte
+            long value = 0L;
+            for (int j = 0; j < tail; j++) {
+                value = (value << BYTE_CODE_BITS) | BYTE_CODEWORDS[bytes[i + j] & 0xFF];
+            }
+            value <<= 2 * tail;
+            for (int j = 2 * tail - 1; j >= 0; j--) {
+                code[position + j] = (byte) value;
+                value >>>= 8;
+            }
+            position += 2 * tail;
+        }
+        return position;
+    }
+
+    private int decodeGroups(byte[] code, int length, byte[] bytes, HammingDecodingReport report) throws IOException {
+        int position = 0;
+        int i = 0;
+        for (; i + CODE_GROUP_SIZE <= length; i += CODE_GROUP_SIZE) {
+            long value = 0L;
+            for (int j = 0; j < CODE_GROUP_SIZE; j++) {
+                value = (value << 8) | (code[i + j] & 0xFF);
+            }
+            position = decodeWords(value, GROUP_SIZE, bytes, position, report);
+        }
+        int tail = length - i;
+        if (tail > 0) {
+            // Only the last buffer of the file may end with a partial group
+            if (tail % 2 != 0) {
+                throw new IOException("Incorrect code file");
+            }
+            long value = 0L;
+            for (int j = 0; j < tail; j++) {
+                value = (value << 8) | (code[i + j] & 0xFF);
+            }
+            position = decodeWords(value >>> tail, tail / 2, bytes, position, report);
+        }
+        return position;
+    }
+
+    // Decodes count bytes from the lowest 14 * count bits of value
+    private int decodeWords(long value, int count, byte[] bytes, int position, HammingDecodingReport report) {
+        int corrected = 0;
+        for (int j = count - 1; j >= 0; j--) {
+            int high = CORRECTIONS[(int) (value >>> (BYTE_CODE_BITS * j + CODEWORD_BITS)) & 0x7F];
+            int low = CORRECTIONS[(int) (value >>> (BYTE_CODE_BITS * j)) & 0x7F];
+            corrected += (high & CORRECTED) != 0 ? 1 : 0;
+            corrected += (low & CORRECTED) != 0 ? 1 : 0;
+            bytes[position++] = (byte) ((high & 0x0F) << 4 | (low & 0x0F));
+        }
+        report.addBlocks(2L * count);
+        report.addCorrected(corrected);
+        return position;
+    }
+
+    // Check byte of a data word: Hamming parity bits in the low 7 bits and the overall parity in the highest one
+    private int secdedCheck(long word) {
+        int check = 0;
+        for (int j = 0; j < SECDED_PARITY_BITS; j++) {
+            check |= (Long.bitCount(word & SECDED_MASKS[j]) & 1) << j;
+        }
+        return check | ((Long.bitCount(word) + Integer.bitCount(check)) & 1) << SECDED_PARITY_BITS;
+    }
+
+    private int readBlock(InputStream in, byte[] block) throws IOException {
+        int length = 0;
+        int read;
+        while (length < block.length && (read = in.read(block, length, block.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+    private static int[] buildNibbleCodewords() {
+        int[] codewords = new int[16];
+        for (int nibble = 0; nibble < 16; nibble++) {
+            int b1 = (nibble >>> 3) & 1;
+            int b2 = (nibble >>> 2) & 1;
+            int b3 = (nibble >>> 1) & 1;
+            int b4 = nibble & 1;
+            int p1 = b1 ^ b2 ^ b4;
+            int p2 = b1 ^ b3 ^ b4;
+            int p3 = b2 ^ b3 ^ b4;
+            codewords[nibble] = p1 << 6 | p2 << 5 | b1 << 4 | p3 << 3 | b2 << 2 | b3 << 1 | b4;
+        }
+        return codewords;
+    }
+
+    private static int[] buildByteCodewords() {
+        int[] codewords = new int[256];
+        for (int b = 0; b < 256; b++) {
+            codewords[b] = NIBBLE_CODEWORDS[b >>> 4] << CODEWORD_BITS | NIBBLE_CODEWORDS[b & 0x0F];
+        }
+        return codewords;
+    }
+
+    // Data bits take the code positions 1..71 that are not powers of two, the highest data bit goes first
+    private static int[] buildSecdedLayout() {
+        int[] dataBits = new int[1 << SECDED_PARITY_BITS];
+        Arrays.fill(dataBits, -1);
+        int bit = Long.SIZE - 1;
+        for (int position = 1; position < SECDED_POSITIONS; position++) {
+            if (Integer.bitCount(position) == 1) {
+                continue;
+            }
+            dataBits[position] = bit;
+            for (int j = 0; j < SECDED_PARITY_BITS; j++) {
+                if ((position >>> j & 1) != 0) {
+                    SECDED_MASKS[j] |= 1L << bit;
+                }
+            }
+            bit--;
+        }
+        return dataBits;
+    }
+
+    // The code is perfect: every 7-bit word is a codeword or one bit away from exactly one codeword
+    private static byte[] buildCorrections() {
+        byte[] corrections = new byte[1 << CODEWORD_BITS];
+        for (int nibble = 0; nibble < 16; nibble++) {
+            corrections[NIBBLE_CODEWORDS[nibble]] = (byte) nibble;
+            for (int bit = 0; bit < CODEWORD_BITS; bit++) {
+                corrections[NIBBLE_CODEWORDS[nibble] ^ (1 << bit)] = (byte) (nibble | CORRECTED);
+            }
+        }
+        return corrections;
+    }
+
     private void readFileAndWriteCodeFile(String filePath, String codeFilePath) throws IOException {
         BufferedReader in = new BufferedReader(new FileReader(filePath));
         BufferedWriter out = new BufferedWriter(new FileWriter(codeFilePath));
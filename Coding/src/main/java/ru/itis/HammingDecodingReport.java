@@ -0,0 +1,34 @@
+package ru.itis;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// What the decoder had to fix: blocks with a corrected error and blocks it could only detect as broken
+@Getter
+public class HammingDecodingReport {
+
+    private long blocks;
+    private long correctedBlocks;
+    private long uncorrectableBlocks;
+    private final List<Long> uncorrectableBlockIndices;
+
+    public HammingDecodingReport() {
+        uncorrectableBlockIndices = new ArrayList<>();
+    }
+
+    void addBlocks(long count) {
+        blocks += count;
+    }
+
+    void addCorrected(long count) {
+        correctedBlocks += count;
+    }
+
+    void addUncorrectable(long blockIndex) {
+        uncorrectableBlocks++;
+        uncorrectableBlockIndices.add(blockIndex);
+    }
+
+}
@@ -7,26 +7,46 @@ import lombok.Getter;
 import java.io.*;
 import java.util.*;
 
-public class HuffmanCoder {
+// encode/decode over file paths keep the original text format with the code table, the Codec stream methods
+// write the adaptive format, which encodeAdaptive/decodeAdaptive write to and read from files
+public class HuffmanCoder implements Codec {
+
+    private static final int ALPHABET_SIZE = 256;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int INTERLEAVED_BLOCK_SIZE = 1 << 18;
+    private static final int STREAM_COUNT = 4;
 
     private Node root;
-    private final HashMap<Character, Integer> characterRateMap;
+    private final int parallelism;
+    private final FrequencyHistogram histogram;
+    private final HashMap<Character, Long> characterRateMap;
     private final HashMap<Character, String> codeMap;
+    private final long[] byteRates;
+    private CanonicalHuffmanCode canonicalCode;
+    private long numberOfBytes;
 
     @AllArgsConstructor
     @Getter
     @Builder
     private static class Node {
         private final char value;
-        private final int rate;
+        private final long rate;
         private final Node left;
         private final Node right;
 
     }
 
     public HuffmanCoder() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public HuffmanCoder(int parallelism) {
+        this.parallelism = parallelism;
+        histogram = new FrequencyHistogram(parallelism);
         characterRateMap = new HashMap<>();
         codeMap = new HashMap<>();
+        byteRates = new long[ALPHABET_SIZE];
+        numberOfBytes = 0L;
     }
 
     public void encode(String filePath, String codeFilePath) throws IOException {
@@ -42,29 +62,114 @@ public class HuffmanCoder {
         readCodeFile(codeFilePath, filePath);
     }
 
-    private void readFileAndCalculateCharacterRate(String filePath) throws IOException {
-        BufferedReader in = new BufferedReader(new FileReader(filePath));
-        String line;
-        characterRateMap.put('\n', 0);
-        while ((line = in.readLine()) != null) {
-            for (int i = 0; i < line.length(); i++) {
-                char c = line.charAt(i);
-                int rate;
-                if (!characterRateMap.containsKey(c)) {
-                    rate = 1;
-                } else {
-                    rate = characterRateMap.get(c) + 1;
-                }
-                characterRateMap.put(c, rate);
+    public void encodeBinary(String filePath, String codeFilePath) throws IOException {
+        Arrays.fill(byteRates, 0L);
+        numberOfBytes = 0L;
+        readFileAndCalculateByteRate(filePath);
+        canonicalCode = CanonicalHuffmanCode.fromFrequencies(byteRates, CanonicalHuffmanCode.MAX_CODE_LENGTH);
+        writeBinaryCodeFile(filePath, codeFilePath);
+    }
+
+    public void encodeBinaryParallel(String filePath, String codeFilePath) throws IOException {
+        Arrays.fill(byteRates, 0L);
+        numberOfBytes = 0L;
+        readFileAndCalculateByteRate(filePath);
+        canonicalCode = CanonicalHuffmanCode.fromFrequencies(byteRates, CanonicalHuffmanCode.MAX_CODE_LENGTH);
+        writeBinaryCodeFileInParallel(filePath, codeFilePath);
+    }
+
+    public void decodeBinary(String codeFilePath, String filePath) throws IOException {
+        readBinaryCodeFile(codeFilePath, filePath);
+    }
+
+    public void encodeInterleaved(String filePath, String codeFilePath) throws IOException {
+        Arrays.fill(byteRates, 0L);
+        numberOfBytes = 0L;
+        readFileAndCalculateByteRate(filePath);
+        canonicalCode = CanonicalHuffmanCode.fromFrequencies(byteRates, CanonicalHuffmanCode.MAX_CODE_LENGTH);
+        writeInterleavedCodeFile(filePath, codeFilePath);
+    }
+
+    public void decodeInterleaved(String codeFilePath, String filePath) throws IOException {
+        readInterleavedCodeFile(codeFilePath, filePath);
+    }
+
+    public void encodeWithContext(String filePath, String codeFilePath) throws IOException {
+        writeContextCodeFile(filePath, codeFilePath, histogram.countBytePairs(filePath));
+    }
+
+    public void decodeWithContext(String codeFilePath, String filePath) throws IOException {
+        readContextCodeFile(codeFilePath, filePath);
+    }
+
+    public void encodeAdaptive(String filePath, String codeFilePath) throws IOException {
+        encodeAdaptive(new FileInputStream(filePath), new BufferedOutputStream(new FileOutputStream(codeFilePath)));
+    }
+
+    public void decodeAdaptive(String codeFilePath, String filePath) throws IOException {
+        decodeAdaptive(new FileInputStream(codeFilePath), new BufferedOutputStream(new FileOutputStream(filePath)));
+    }
+
+    // Codec streams use the adaptive mode, the only one that needs a single pass over the data
+    @Override
+    public void encode(InputStream in, OutputStream codeOut) throws IOException {
+        encodeAdaptive(in, codeOut);
+    }
+
+    @Override
+    public void decode(InputStream codeIn, OutputStream out) throws IOException {
+        decodeAdaptive(codeIn, out);
+    }
+
+    // Single pass without a header: the tree is updated after every symbol and the output is
+    // flushed after every read, so the stream can be decoded while it is still being written
+    public void encodeAdaptive(InputStream in, OutputStream codeOut) throws IOException {
+        AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+        BitOutputStream out = new BitOutputStream(codeOut);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            for (int i = 0; i < length; i++) {
+                tree.encode(buffer[i] & 0xFF, out);
             }
-            characterRateMap.put('\n', characterRateMap.get('\n') + 1);
+            out.flush();
         }
+        tree.encode(AdaptiveHuffmanTree.END_OF_STREAM, out);
         in.close();
+        out.close();
+    }
+
+    public void decodeAdaptive(InputStream codeIn, OutputStream out) throws IOException {
+        AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree();
+        BitInputStream in = new BitInputStream(codeIn);
+        while (true) {
+            int symbol = tree.decode(in);
+            // A truncated stream would otherwise decode padding zeros forever
+            if (in.isPastEnd()) {
+                throw new EOFException("Incorrect code file");
+            }
+            if (symbol == AdaptiveHuffmanTree.END_OF_STREAM) {
+                break;
+            }
+            out.write(symbol);
+        }
+        in.close();
+        out.close();
+    }
+
+    private void readFileAndCalculateCharacterRate(String filePath) throws IOException {
+        long[] rates = histogram.countCharacters(filePath);
+        characterRateMap.put('\n', 0L);
+        for (int i = 0; i < rates.length; i++) {
+            if (rates[i] > 0) {
+                characterRateMap.put((char) i, rates[i]);
+            }
+        }
     }
 
     private void buildHuffmanTree() {
-        PriorityQueue<Node> priorityQueue = new PriorityQueue<>(Comparator.comparingInt(Node::getRate));
-        for (Map.Entry<Character, Integer> entry : characterRateMap.entrySet()) {
+        PriorityQueue<Node> priorityQueue = new PriorityQueue<>(Comparator.comparingLong(Node::getRate));
+        for (Map.Entry<Character, Long> entry : characterRateMap.entrySet()) {
             priorityQueue.offer(Node.builder()
                     .value(entry.getKey())
                     .rate(entry.getValue())
@@ -119,7 +224,6 @@ public class HuffmanCoder {
             out.write(entry.getKey());
             out.write(entry.getValue());
             out.write('\n');
-            out.flush();
         }
         // Write delimiter
         out.write("--");
@@ -130,17 +234,16 @@ public class HuffmanCoder {
         while ((line = in.readLine()) != null) {
             for (int i = 0; i < line.length(); i++) {
                 out.write(codeMap.get(line.charAt(i)));
-                out.flush();
             }
             out.write(codeMap.get('\n'));
-            out.flush();
         }
         in.close();
         out.close();
     }
 
     private void readCodeFile(String codeFilePath, String filePath) throws IOException {
-        HashMap<String, Character> charactersMap = new HashMap<>();
+        ArrayList<Character> characters = new ArrayList<>();
+        ArrayList<String> codes = new ArrayList<>();
         BufferedReader in = new BufferedReader(new FileReader(codeFilePath));
         BufferedWriter out = new BufferedWriter(new FileWriter(filePath));
         // Read code table
@@ -148,30 +251,273 @@ public class HuffmanCoder {
         boolean flag = false;
         while (!(line = in.readLine()).equals("--")) {
             if (line.length() > 0 && !flag) {
-                char c = line.charAt(0);
-                charactersMap.put(line.substring(1), c);
+                characters.add(line.charAt(0));
+                codes.add(line.substring(1));
             } else if (flag) {
-                charactersMap.put(line, '\n');
+                characters.add('\n');
+                codes.add(line);
                 flag = false;
             } else {
                 flag = true;
             }
         }
+        int[] tableSymbols = new int[characters.size()];
+        long[] tableCodes = new long[characters.size()];
+        int[] tableLengths = new int[characters.size()];
+        for (int i = 0; i < characters.size(); i++) {
+            tableSymbols[i] = characters.get(i);
+            tableCodes[i] = Long.parseLong(codes.get(i), 2);
+            tableLengths[i] = codes.get(i).length();
+        }
+        HuffmanDecodingTable table = new HuffmanDecodingTable(tableSymbols, tableCodes, tableLengths);
         // Read code
         line = in.readLine();
         if (line != null) {
-            StringBuilder code = new StringBuilder();
-            for (int i = 0; i < line.length(); i++) {
-                code.append(line.charAt(i));
-                if (charactersMap.containsKey(code.toString())) {
-                    out.write(charactersMap.get(code.toString()));
-                    out.flush();
-                    code.setLength(0);
+            long window = 0L;
+            int windowBits = 0;
+            int position = 0;
+            while (true) {
+                while (windowBits < table.getMaxLength() && position < line.length()) {
+                    window |= (long) (line.charAt(position++) - '0') << (63 - windowBits);
+                    windowBits++;
+                }
+                int entry = table.lookup(window);
+                int length = entry & 0xFF;
+                if (windowBits == 0 || length > windowBits) {
+                    break;
                 }
+                out.write(entry >>> 8);
+                window <<= length;
+                windowBits -= length;
             }
         }
         in.close();
         out.close();
     }
 
+    private void readFileAndCalculateByteRate(String filePath) throws IOException {
+        long[] rates = histogram.countBytes(filePath);
+        System.arraycopy(rates, 0, byteRates, 0, ALPHABET_SIZE);
+        for (long rate : rates) {
+            numberOfBytes += rate;
+        }
+    }
+
+    private void writeBinaryHeader(DataOutputStream header) throws IOException {
+        // Write number of bytes and code lengths
+        header.writeLong(numberOfBytes);
+        canonicalCode.write(header);
+        header.flush();
+    }
+
+    private void writeBinaryCodeFile(String filePath, String codeFilePath) throws IOException {
+        InputStream in = new FileInputStream(filePath);
+        OutputStream fileOut = new BufferedOutputStream(new FileOutputStream(codeFilePath));
+        writeBinaryHeader(new DataOutputStream(fileOut));
+        // Write code
+        long[] codes = canonicalCode.getCodes();
+        int[] lengths = canonicalCode.getLengths();
+        BitOutputStream out = new BitOutputStream(fileOut);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            for (int i = 0; i < length; i++) {
+                int b = buffer[i] & 0xFF;
+                out.writeBits(codes[b], lengths[b]);
+            }
+        }
+        in.close();
+        out.close();
+    }
+
+    private void writeBinaryCodeFileInParallel(String filePath, String codeFilePath) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(codeFilePath));
+        writeBinaryHeader(new DataOutputStream(out));
+        // Write code
+        new ParallelHuffmanEncoder(canonicalCode, parallelism).encode(filePath, out);
+        out.close();
+    }
+
+    private void readBinaryCodeFile(String codeFilePath, String filePath) throws IOException {
+        InputStream fileIn = new BufferedInputStream(new FileInputStream(codeFilePath));
+        DataInputStream header = new DataInputStream(fileIn);
+        // Read number of bytes and code lengths
+        long bytesToDecode = header.readLong();
+        HuffmanDecodingTable table = CanonicalHuffmanCode.read(header, ALPHABET_SIZE).buildDecodingTable();
+        // Read code
+        BitInputStream in = new BitInputStream(fileIn);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE);
+        for (long i = 0; i < bytesToDecode; i++) {
+            out.write(table.decode(in));
+        }
+        in.close();
+        out.close();
+    }
+
+    private void writeInterleavedCodeFile(String filePath, String codeFilePath) throws IOException {
+        InputStream in = new FileInputStream(filePath);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(codeFilePath)));
+        writeBinaryHeader(out);
+        // Write blocks, each one is split into four streams with a jump table of their sizes
+        long[] codes = canonicalCode.getCodes();
+        int[] lengths = canonicalCode.getLengths();
+        byte[] block = new byte[INTERLEAVED_BLOCK_SIZE];
+        ByteArrayOutputStream[] streams = new ByteArrayOutputStream[STREAM_COUNT];
+        for (int i = 0; i < STREAM_COUNT; i++) {
+            streams[i] = new ByteArrayOutputStream();
+        }
+        int blockLength;
+        while ((blockLength = readBlock(in, block)) > 0) {
+            int segment = (blockLength + STREAM_COUNT - 1) / STREAM_COUNT;
+            for (int i = 0; i < STREAM_COUNT; i++) {
+                streams[i].reset();
+                BitOutputStream stream = new BitOutputStream(streams[i]);
+                for (int j = i * segment; j < Math.min(blockLength, (i + 1) * segment); j++) {
+                    int b = block[j] & 0xFF;
+                    stream.writeBits(codes[b], lengths[b]);
+                }
+                stream.close();
+            }
+            for (ByteArrayOutputStream stream : streams) {
+                out.writeInt(stream.size());
+            }
+            for (ByteArrayOutputStream stream : streams) {
+                stream.writeTo(out);
+            }
+        }
+        in.close();
+        out.close();
+    }
+
+    private void readInterleavedCodeFile(String codeFilePath, String filePath) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(codeFilePath)));
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE);
+        // Read number of bytes and code lengths
+        long bytesToDecode = in.readLong();
+        HuffmanDecodingTable table = CanonicalHuffmanCode.read(in, ALPHABET_SIZE).buildDecodingTable();
+        // Read blocks
+        byte[] block = new byte[INTERLEAVED_BLOCK_SIZE];
+        byte[] code = new byte[0];
+        int[] streamBounds = new int[STREAM_COUNT + 1];
+        while (bytesToDecode > 0) {
+            int blockLength = (int) Math.min(INTERLEAVED_BLOCK_SIZE, bytesToDecode);
+            for (int i = 0; i < STREAM_COUNT; i++) {
+                streamBounds[i + 1] = streamBounds[i] + in.readInt();
+            }
+            if (code.length < streamBounds[STREAM_COUNT]) {
+                code = new byte[streamBounds[STREAM_COUNT]];
+            }
+            in.readFully(code, 0, streamBounds[STREAM_COUNT]);
+            table.decodeFourStreams(code, streamBounds, block, 0, blockLength);
+            out.write(block, 0, blockLength);
+            bytesToDecode -= blockLength;
+        }
+        in.close();
+        out.close();
+    }
+
+    private int readBlock(InputStream in, byte[] block) throws IOException {
+        int length = 0;
+        int read;
+        while (length < block.length && (read = in.read(block, length, block.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+    // Order-1 mode: every preceding byte selects its own code table, contexts where a table would not
+    // pay for its header fall back to the order-0 table
+    private void writeContextCodeFile(String filePath, String codeFilePath, long[] pairRates) throws IOException {
+        long[] rates = new long[ALPHABET_SIZE];
+        for (int i = 0; i < pairRates.length; i++) {
+            rates[i & 0xFF] += pairRates[i];
+        }
+        long bytes = 0L;
+        for (long rate : rates) {
+            bytes += rate;
+        }
+        CanonicalHuffmanCode globalCode = CanonicalHuffmanCode.fromFrequencies(rates, CanonicalHuffmanCode.MAX_CODE_LENGTH);
+        CanonicalHuffmanCode[] contextCodes = new CanonicalHuffmanCode[ALPHABET_SIZE];
+        long[] codes = new long[ALPHABET_SIZE * ALPHABET_SIZE];
+        int[] lengths = new int[ALPHABET_SIZE * ALPHABET_SIZE];
+        for (int context = 0; context < ALPHABET_SIZE; context++) {
+            long[] contextRates = Arrays.copyOfRange(pairRates, context << 8, (context + 1) << 8);
+            CanonicalHuffmanCode code = CanonicalHuffmanCode.fromFrequencies(contextRates, CanonicalHuffmanCode.MAX_CODE_LENGTH);
+            long ownBits = 8L * code.getHeaderSize();
+            long globalBits = 0L;
+            for (int i = 0; i < ALPHABET_SIZE; i++) {
+                ownBits += contextRates[i] * code.getLength(i);
+                globalBits += contextRates[i] * globalCode.getLength(i);
+            }
+            if (ownBits < globalBits) {
+                contextCodes[context] = code;
+            } else {
+                code = globalCode;
+            }
+            System.arraycopy(code.getCodes(), 0, codes, context << 8, ALPHABET_SIZE);
+            System.arraycopy(code.getLengths(), 0, lengths, context << 8, ALPHABET_SIZE);
+        }
+        InputStream in = new FileInputStream(filePath);
+        OutputStream fileOut = new BufferedOutputStream(new FileOutputStream(codeFilePath));
+        DataOutputStream header = new DataOutputStream(fileOut);
+        // Write number of bytes, order-0 code lengths, bitmap of contexts with own tables and their code lengths
+        header.writeLong(bytes);
+        globalCode.write(header);
+        for (int i = 0; i < ALPHABET_SIZE; i += 8) {
+            int mask = 0;
+            for (int j = 0; j < 8; j++) {
+                mask |= contextCodes[i + j] != null ? 0x80 >>> j : 0;
+            }
+            header.writeByte(mask);
+        }
+        for (CanonicalHuffmanCode code : contextCodes) {
+            if (code != null) {
+                code.write(header);
+            }
+        }
+        header.flush();
+        // Write code
+        BitOutputStream out = new BitOutputStream(fileOut);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int previous = 0;
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            for (int i = 0; i < length; i++) {
+                int index = (previous << 8) | (buffer[i] & 0xFF);
+                out.writeBits(codes[index], lengths[index]);
+                previous = buffer[i] & 0xFF;
+            }
+        }
+        in.close();
+        out.close();
+    }
+
+    private void readContextCodeFile(String codeFilePath, String filePath) throws IOException {
+        InputStream fileIn = new BufferedInputStream(new FileInputStream(codeFilePath));
+        DataInputStream header = new DataInputStream(fileIn);
+        // Read number of bytes, order-0 code lengths, bitmap of contexts with own tables and their code lengths
+        long bytesToDecode = header.readLong();
+        HuffmanDecodingTable globalTable = CanonicalHuffmanCode.read(header, ALPHABET_SIZE).buildDecodingTable();
+        byte[] contextMask = new byte[ALPHABET_SIZE / 8];
+        header.readFully(contextMask);
+        HuffmanDecodingTable[] tables = new HuffmanDecodingTable[ALPHABET_SIZE];
+        for (int context = 0; context < ALPHABET_SIZE; context++) {
+            if ((contextMask[context >>> 3] & (0x80 >>> (context & 7))) != 0) {
+                tables[context] = CanonicalHuffmanCode.read(header, ALPHABET_SIZE).buildDecodingTable();
+            } else {
+                tables[context] = globalTable;
+            }
+        }
+        // Read code
+        BitInputStream in = new BitInputStream(fileIn);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE);
+        int previous = 0;
+        for (long i = 0; i < bytesToDecode; i++) {
+            previous = tables[previous].decode(in);
+            out.write(previous);
+        }
+        in.close();
+        out.close();
+    }
+
 }
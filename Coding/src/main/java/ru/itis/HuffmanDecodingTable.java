@@ -0,0 +1,181 @@
+package ru.itis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+public class HuffmanDecodingTable {
+
+    private static final int LOOKUP_BITS = 10;
+    private static final int LINK_FLAG = 0x80000000;
+
+    private final int[] symbols;
+    private final long[] codes;
+    private final int[] lengths;
+    private final int maxLength;
+    private final int rootBits;
+    // Leaf entry is (symbol << 8 | code length), link entry is (LINK_FLAG | offset << 5 | sub-table bits)
+    private int[] table;
+    private int tableSize;
+
+    public HuffmanDecodingTable(int[] symbols, long[] codes, int[] lengths) {
+        this.symbols = symbols;
+        this.codes = codes;
+        this.lengths = lengths;
+        int max = 1;
+        for (int length : lengths) {
+            max = Math.max(max, length);
+        }
+        maxLength = max;
+        rootBits = Math.min(LOOKUP_BITS, maxLength);
+        table = new int[1 << rootBits];
+        tableSize = table.length;
+        ArrayList<Integer> all = new ArrayList<>();
+        for (int i = 0; i < symbols.length; i++) {
+            if (lengths[i] > 0) {
+                all.add(i);
+            }
+        }
+        fillTable(0, rootBits, 0, all);
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int decode(BitInputStream in) throws IOException {
+        int entry = lookup(in.peekBits(maxLength) << (64 - maxLength));
+        in.skipBits(entry & 0xFF);
+        return entry >>> 8;
+    }
+
+    // Decodes four independent streams, stream i fills output segment i; the dependency chains of the
+    // streams do not depend on each other, so the processor can overlap their table lookups
+    public void decodeFourStreams(byte[] code, int[] streamBounds, byte[] output, int offset, int length) {
+        int segment = (length + 3) / 4;
+        int lastCount = length - 3 * segment;
+        int rootShift = 64 - rootBits;
+        long a0 = 0L, a1 = 0L, a2 = 0L, a3 = 0L;
+        int b0 = 0, b1 = 0, b2 = 0, b3 = 0;
+        int p0 = streamBounds[0], p1 = streamBounds[1], p2 = streamBounds[2], p3 = streamBounds[3];
+        int e0 = streamBounds[1], e1 = streamBounds[2], e2 = streamBounds[3], e3 = streamBounds[4];
+        int o0 = offset, o1 = offset + segment, o2 = offset + 2 * segment, o3 = offset + 3 * segment;
+        for (int i = 0; i < lastCount; i++) {
+            if (b0 < maxLength) {
+                for (; b0 <= 56; b0 += 8) {
+                    a0 |= (long) (p0 < e0 ? code[p0++] & 0xFF : 0) << (56 - b0);
+                }
+            }
+            if (b1 < maxLength) {
+                for (; b1 <= 56; b1 += 8) {
+                    a1 |= (long) (p1 < e1 ? code[p1++] & 0xFF : 0) << (56 - b1);
+                }
+            }
+            if (b2 < maxLength) {
+                for (; b2 <= 56; b2 += 8) {
+                    a2 |= (long) (p2 < e2 ? code[p2++] & 0xFF : 0) << (56 - b2);
+                }
+            }
+            if (b3 < maxLength) {
+                for (; b3 <= 56; b3 += 8) {
+                    a3 |= (long) (p3 < e3 ? code[p3++] & 0xFF : 0) << (56 - b3);
+                }
+            }
+            int entry0 = table[(int) (a0 >>> rootShift)];
+            int entry1 = table[(int) (a1 >>> rootShift)];
+            int entry2 = table[(int) (a2 >>> rootShift)];
+            int entry3 = table[(int) (a3 >>> rootShift)];
+            if ((entry0 | entry1 | entry2 | entry3) < 0) {
+                entry0 = lookup(a0);
+                entry1 = lookup(a1);
+                entry2 = lookup(a2);
+                entry3 = lookup(a3);
+            }
+            a0 <<= entry0 & 0xFF;
+            a1 <<= entry1 & 0xFF;
+            a2 <<= entry2 & 0xFF;
+            a3 <<= entry3 & 0xFF;
+            b0 -= entry0 & 0xFF;
+            b1 -= entry1 & 0xFF;
+            b2 -= entry2 & 0xFF;
+            b3 -= entry3 & 0xFF;
+            output[o0++] = (byte) (entry0 >>> 8);
+            output[o1++] = (byte) (entry1 >>> 8);
+            output[o2++] = (byte) (entry2 >>> 8);
+            output[o3++] = (byte) (entry3 >>> 8);
+        }
+        // The last stream may be shorter, the others finish one by one
+        int rest = segment - Math.max(lastCount, 0);
+        decodeStream(code, p0, e0, a0, b0, output, o0, Math.min(rest, length));
+        decodeStream(code, p1, e1, a1, b1, output, o1, Math.min(rest, length - segment));
+        decodeStream(code, p2, e2, a2, b2, output, o2, Math.min(rest, length - 2 * segment));
+    }
+
+    // Window holds the next code bits starting from the highest bit
+    public int lookup(long window) {
+        int entry = table[(int) (window >>> (64 - rootBits))];
+        int consumed = rootBits;
+        while (entry < 0) {
+            int bits = entry & 0x1F;
+            int offset = (entry & ~LINK_FLAG) >>> 5;
+            entry = table[offset + (int) ((window << consumed) >>> (64 - bits))];
+            consumed += bits;
+        }
+        return entry;
+    }
+
+    private void decodeStream(byte[] code, int position, int end, long accumulator, int bitCount,
+                             byte[] output, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            for (; bitCount <= 56; bitCount += 8) {
+                accumulator |= (long) (position < end ? code[position++] & 0xFF : 0) << (56 - bitCount);
+            }
+            int entry = lookup(accumulator);
+            accumulator <<= entry & 0xFF;
+            bitCount -= entry & 0xFF;
+            output[offset++] = (byte) (entry >>> 8);
+        }
+    }
+
+    private void fillTable(int offset, int bits, int consumed, ArrayList<Integer> indices) {
+        HashMap<Integer, ArrayList<Integer>> longCodes = new HashMap<>();
+        for (int index : indices) {
+            int rest = lengths[index] - consumed;
+            long code = codes[index] & ((1L << rest) - 1);
+            if (rest <= bits) {
+                int start = (int) (code << (bits - rest));
+                int entry = (symbols[index] << 8) | lengths[index];
+                for (int i = 0; i < (1 << (bits - rest)); i++) {
+                    table[offset + start + i] = entry;
+                }
+            } else {
+                int prefix = (int) (code >>> (rest - bits));
+                longCodes.computeIfAbsent(prefix, k -> new ArrayList<>()).add(index);
+            }
+        }
+        // Codes longer than the current table are resolved by sub-tables
+        for (Map.Entry<Integer, ArrayList<Integer>> group : longCodes.entrySet()) {
+            int max = 0;
+            for (int index : group.getValue()) {
+                max = Math.max(max, lengths[index]);
+            }
+            int subBits = Math.min(LOOKUP_BITS, max - consumed - bits);
+            int subOffset = allocate(1 << subBits);
+            table[offset + group.getKey()] = LINK_FLAG | (subOffset << 5) | subBits;
+            fillTable(subOffset, subBits, consumed + bits, group.getValue());
+        }
+    }
+
+    private int allocate(int size) {
+        if (tableSize + size > table.length) {
+            int[] newTable = new int[Math.max(table.length * 2, tableSize + size)];
+            System.arraycopy(table, 0, newTable, 0, tableSize);
+            table = newTable;
+        }
+        int offset = tableSize;
+        tableSize += size;
+        return offset;
+    }
+
+}
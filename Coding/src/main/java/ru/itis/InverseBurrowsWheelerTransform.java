@@ -0,0 +1,89 @@
+package ru.itis;
+
+import java.util.Arrays;
+
+// Inverse transform over the last column through LF links; buffers are kept between blocks
+public class InverseBurrowsWheelerTransform {
+
+    private static final int BYTE_ALPHABET_SIZE = 256;
+    private static final int CHARACTER_ALPHABET_SIZE = 65536;
+    // Packed links keep the row in the upper 24 bits
+    private static final int MAX_PACKED_LENGTH = 1 << 24;
+
+    private final int[] byteStarts;
+    private int[] characterStarts;
+    private int[] links;
+
+    public InverseBurrowsWheelerTransform() {
+        byteStarts = new int[BYTE_ALPHABET_SIZE];
+        links = new int[0];
+    }
+
+    public void decode(byte[] lastColumn, int length, int keyIndex, byte[] block) {
+        ensureCapacity(length);
+        int[] starts = byteStarts;
+        Arrays.fill(starts, 0);
+        for (int i = 0; i < length; i++) {
+            starts[lastColumn[i] & 0xFF]++;
+        }
+        toStarts(starts);
+        if (length <= MAX_PACKED_LENGTH) {
+            // Every link holds the next row together with its byte, so a step is a single random read
+            for (int i = 0; i < length; i++) {
+                int b = lastColumn[i] & 0xFF;
+                links[starts[b]++] = (i << 8) | b;
+            }
+            int entry = links[keyIndex];
+            for (int i = 0; i < length; i++) {
+                block[i] = (byte) entry;
+                entry = links[entry >>> 8];
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                links[starts[lastColumn[i] & 0xFF]++] = i;
+            }
+            int index = links[keyIndex];
+            for (int i = 0; i < length; i++) {
+                block[i] = lastColumn[index];
+                index = links[index];
+            }
+        }
+    }
+
+    public void decode(char[] lastColumn, int length, int keyIndex, char[] block) {
+        ensureCapacity(length);
+        if (characterStarts == null) {
+            characterStarts = new int[CHARACTER_ALPHABET_SIZE];
+        }
+        int[] starts = characterStarts;
+        Arrays.fill(starts, 0);
+        for (int i = 0; i < length; i++) {
+            starts[lastColumn[i]]++;
+        }
+        toStarts(starts);
+        for (int i = 0; i < length; i++) {
+            links[starts[lastColumn[i]]++] = i;
+        }
+        int index = links[keyIndex];
+        for (int i = 0; i < length; i++) {
+            block[i] = lastColumn[index];
+            index = links[index];
+        }
+    }
+
+    private void toStarts(int[] counts) {
+        int sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            int count = counts[i];
+            counts[i] = sum;
+            sum += count;
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (links.length < length) {
+            links = new int[length];
+        }
+    }
+
+}
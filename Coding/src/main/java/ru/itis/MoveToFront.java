@@ -0,0 +1,90 @@
+package ru.itis;
+
+// Move-to-front over plain arrays: every symbol is replaced by its position in the list of recently
+// used symbols and then moved to the front, so runs of a symbol turn into runs of zeros
+public class MoveToFront {
+
+    private static final int BYTE_ALPHABET_SIZE = 256;
+
+    private MoveToFront() {
+    }
+
+    // The list starts with byte values in ascending order
+    public static void encode(byte[] symbols, int length, byte[] indices) {
+        byte[] list = identityList();
+        for (int i = 0; i < length; i++) {
+            byte symbol = symbols[i];
+            byte previous = list[0];
+            if (previous == symbol) {
+                indices[i] = 0;
+                continue;
+            }
+            list[0] = symbol;
+            int j = 1;
+            while (list[j] != symbol) {
+                byte current = list[j];
+                list[j] = previous;
+                previous = current;
+                j++;
+            }
+            list[j] = previous;
+            indices[i] = (byte) j;
+        }
+    }
+
+    public static void decode(byte[] indices, int length, byte[] symbols) {
+        byte[] list = identityList();
+        for (int i = 0; i < length; i++) {
+            int j = indices[i] & 0xFF;
+            byte symbol = list[j];
+            if (j > 0) {
+                System.arraycopy(list, 0, list, 1, j);
+                list[0] = symbol;
+            }
+            symbols[i] = symbol;
+        }
+    }
+
+    // The list holds the alphabet in its initial order and is changed in place
+    public static void encode(char[] list, char[] symbols, int length, int[] indices) {
+        for (int i = 0; i < length; i++) {
+            char symbol = symbols[i];
+            char previous = list[0];
+            if (previous == symbol) {
+                indices[i] = 0;
+                continue;
+            }
+            list[0] = symbol;
+            int j = 1;
+            while (list[j] != symbol) {
+                char current = list[j];
+                list[j] = previous;
+                previous = current;
+                j++;
+            }
+            list[j] = previous;
+            indices[i] = j;
+        }
+    }
+
+    public static void decode(char[] list, int[] indices, int length, char[] symbols) {
+        for (int i = 0; i < length; i++) {
+            int j = indices[i];
+            char symbol = list[j];
+            if (j > 0) {
+                System.arraycopy(list, 0, list, 1, j);
+                list[0] = symbol;
+            }
+            symbols[i] = symbol;
+        }
+    }
+
+    private static byte[] identityList() {
+        byte[] list = new byte[BYTE_ALPHABET_SIZE];
+        for (int i = 0; i < BYTE_ALPHABET_SIZE; i++) {
+            list[i] = (byte) i;
+        }
+        return list;
+    }
+
+}
@@ -0,0 +1,53 @@
+package ru.itis;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Random;
+
+// Binary channel that flips independent bits with bitErrorRate and starts bursts of burstLength flipped bits
+// with burstRate per bit; the same seed gives the same errors
+@Builder
+@Getter
+public class NoisyChannel {
+
+    private final double bitErrorRate;
+    private final double burstRate;
+    private final int burstLength;
+    private final long seed;
+
+    // Returns the number of flipped bits
+    public long corrupt(byte[] data, int length) {
+        Random random = new Random(seed);
+        long bitLength = 8L * length;
+        long flipped = 0L;
+        for (long position = nextGap(random, bitErrorRate); position < bitLength; position += 1 + nextGap(random, bitErrorRate)) {
+            flip(data, position);
+            flipped++;
+        }
+        for (long position = nextGap(random, burstRate); position < bitLength; position += 1 + nextGap(random, burstRate)) {
+            long end = Math.min(bitLength, position + burstLength);
+            for (long bit = position; bit < end; bit++) {
+                flip(data, bit);
+                flipped++;
+            }
+        }
+        return flipped;
+    }
+
+    // Number of bits before the next event, geometrically distributed
+    private long nextGap(Random random, double rate) {
+        if (rate <= 0) {
+            return Long.MAX_VALUE / 2;
+        }
+        if (rate >= 1) {
+            return 0;
+        }
+        return (long) Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - rate));
+    }
+
+    private void flip(byte[] data, long position) {
+        data[(int) (position >>> 3)] ^= (byte) (0x80 >>> (int) (position & 7));
+    }
+
+}
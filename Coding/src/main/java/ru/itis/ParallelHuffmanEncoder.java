@@ -0,0 +1,160 @@
+package ru.itis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ParallelHuffmanEncoder {
+
+    private static final int CHUNK_SIZE = 1 << 21;
+
+    private final long[] codes;
+    private final int[] lengths;
+    private final int parallelism;
+
+    public ParallelHuffmanEncoder(CanonicalHuffmanCode code, int parallelism) {
+        this.codes = code.getCodes();
+        this.lengths = code.getLengths();
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    // Writes exactly the same bit stream as a sequential BitOutputStream would
+    public void encode(String filePath, OutputStream out) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            byte[][] chunks = new byte[parallelism][CHUNK_SIZE];
+            int[] chunkLengths = new int[parallelism];
+            long[] bitOffsets = new long[parallelism + 1];
+            long size = channel.size();
+            long position = 0;
+            long carry = 0;
+            int carryBits = 0;
+            while (position < size) {
+                // Read chunks and calculate their encoded lengths
+                int chunkCount = (int) Math.min(parallelism, (size - position + CHUNK_SIZE - 1) / CHUNK_SIZE);
+                ArrayList<Callable<Long>> measureTasks = new ArrayList<>();
+                for (int i = 0; i < chunkCount; i++) {
+                    int chunk = i;
+                    long start = position + (long) i * CHUNK_SIZE;
+                    chunkLengths[i] = (int) Math.min(CHUNK_SIZE, size - start);
+                    measureTasks.add(() -> readAndMeasureChunk(channel, start, chunks[chunk], chunkLengths[chunk]));
+                }
+                List<Long> bitLengths = runAll(executor, measureTasks);
+                // Prefix sum gives every chunk its position in the output
+                bitOffsets[0] = carryBits;
+                for (int i = 0; i < chunkCount; i++) {
+                    bitOffsets[i + 1] = bitOffsets[i] + bitLengths.get(i);
+                }
+                long totalBits = bitOffsets[chunkCount];
+                long[] words = new long[(int) (totalBits >>> 6) + 2];
+                words[0] = carryBits > 0 ? carry << (64 - carryBits) : 0L;
+                ArrayList<Callable<long[]>> encodeTasks = new ArrayList<>();
+                for (int i = 0; i < chunkCount; i++) {
+                    int chunk = i;
+                    encodeTasks.add(() -> encodeChunk(chunks[chunk], chunkLengths[chunk], bitOffsets[chunk], words));
+                }
+                // Words shared by neighbouring chunks are merged after all workers are done
+                List<long[]> edges = runAll(executor, encodeTasks);
+                for (int i = 0; i < chunkCount; i++) {
+                    long[] edge = edges.get(i);
+                    words[(int) (bitOffsets[i] >>> 6)] |= edge[0];
+                    words[(int) edge[2]] |= edge[1];
+                }
+                // Write whole bytes and keep the rest for the next round
+                int fullBytes = (int) (totalBits >>> 3);
+                ByteBuffer bytes = ByteBuffer.allocate(words.length * 8);
+                bytes.asLongBuffer().put(words);
+                out.write(bytes.array(), 0, fullBytes);
+                carryBits = (int) (totalBits & 7);
+                carry = (bytes.get(fullBytes) & 0xFF) >>> (8 - carryBits);
+                position += (long) chunkCount * CHUNK_SIZE;
+            }
+            if (carryBits > 0) {
+                out.write((int) (carry << (8 - carryBits)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private long readAndMeasureChunk(FileChannel channel, long start, byte[] chunk, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        int[] counts = new int[lengths.length];
+        for (int i = 0; i < length; i++) {
+            counts[chunk[i] & 0xFF]++;
+        }
+        long bits = 0;
+        for (int i = 0; i < counts.length; i++) {
+            bits += (long) counts[i] * lengths[i];
+        }
+        return bits;
+    }
+
+    // Returns the first word, the last word and its index; all other touched words belong to this chunk only
+    private long[] encodeChunk(byte[] chunk, int length, long bitOffset, long[] words) {
+        int firstIndex = (int) (bitOffset >>> 6);
+        int index = firstIndex;
+        int free = 64 - (int) (bitOffset & 63);
+        long accumulator = 0L;
+        long head = 0L;
+        for (int i = 0; i < length; i++) {
+            int b = chunk[i] & 0xFF;
+            long code = codes[b];
+            int codeLength = lengths[b];
+            if (codeLength < free) {
+                free -= codeLength;
+                accumulator |= code << free;
+            } else {
+                int rest = codeLength - free;
+                accumulator |= code >>> rest;
+                if (index == firstIndex) {
+                    head = accumulator;
+                } else {
+                    words[index] = accumulator;
+                }
+                index++;
+                free = 64 - rest;
+                accumulator = rest > 0 ? code << free : 0L;
+            }
+        }
+        if (index == firstIndex) {
+            head = accumulator;
+            accumulator = 0L;
+        }
+        return new long[]{head, accumulator, index};
+    }
+
+    private <T> List<T> runAll(ExecutorService executor, List<Callable<T>> tasks) throws IOException {
+        try {
+            ArrayList<T> results = new ArrayList<>();
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+}
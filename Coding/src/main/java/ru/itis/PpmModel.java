@@ -0,0 +1,423 @@
+package ru.itis;
+
+import java.io.IOException;
+
+// Adaptive PPM model over bytes: contexts of the last maxOrder bytes are tried from the longest one,
+// an escape moves to a shorter context and excludes the symbols already offered, order -1 is uniform.
+// Orders 0 and 1 keep a frequency for every byte, order 2 keeps short lists of the bytes it has seen.
+// When a window costs more than coding every byte at order -1, the following windows are coded raw
+public class PpmModel {
+
+    public static final int END_OF_STREAM = 256;
+    private static final int BYTE_ALPHABET_SIZE = 256;
+    private static final int UNIFORM_ALPHABET_SIZE = 257;
+    private static final int MAX_CONTEXT_TOTAL = 1 << 13;
+    // Orders below this one use direct-indexed tables
+    private static final int DIRECT_ORDERS = 2;
+    private static final int INITIAL_CAPACITY = 4;
+    // One byte for the symbol and four for its frequency
+    private static final int ENTRY_SIZE = 5;
+    // Headers of the symbol and frequency arrays of a list
+    private static final int LIST_OVERHEAD = 32;
+    // Two array references, the size and the total of an order 2 context
+    private static final int CONTEXT_INDEX_SIZE = 16;
+    private static final int WINDOW_SIZE = 1 << 12;
+    private static final int MAX_RAW_WINDOWS = 64;
+    // log2 of a frequency in 1/256 of a bit
+    private static final int[] COSTS = new int[1 << 14];
+    private static final long RAW_WINDOW_COST;
+
+    static {
+        for (int i = 1; i < COSTS.length; i++) {
+            COSTS[i] = (int) Math.round(StrictMath.log(i) / StrictMath.log(2) * 256);
+        }
+        RAW_WINDOW_COST = (long) WINDOW_SIZE * COSTS[UNIFORM_ALPHABET_SIZE];
+    }
+
+    private final int maxOrder;
+    private final long memoryBudget;
+    private final long fixedMemory;
+    private final int[][] counts;
+    private final int[][] directTotals;
+    private final int[][] directDistinct;
+    private byte[][] symbols;
+    private int[][] frequencies;
+    private int[] sizes;
+    private int[] totals;
+    private final int[] exclusions;
+    private final int[] excluded;
+    private int excludedCount;
+    private int exclusionStamp;
+    private long usedMemory;
+    private int history;
+    private long windowCost;
+    private int windowSymbols;
+    private int rawWindows;
+    private int rawBackoff;
+
+    public PpmModel(int maxOrder, long memoryBudget) {
+        if (maxOrder < 0 || maxOrder > 2) {
+            throw new IllegalArgumentException("Context order must be between 0 and 2");
+        }
+        this.maxOrder = maxOrder;
+        this.memoryBudget = memoryBudget;
+        int directOrders = Math.min(maxOrder + 1, DIRECT_ORDERS);
+        counts = new int[directOrders][];
+        directTotals = new int[directOrders][];
+        directDistinct = new int[directOrders][];
+        long memory = 0L;
+        for (int order = 0; order < directOrders; order++) {
+            int contextCount = 1 << (8 * order);
+            counts[order] = new int[contextCount * BYTE_ALPHABET_SIZE];
+            directTotals[order] = new int[contextCount];
+            directDistinct[order] = new int[contextCount];
+            memory += (long) contextCount * (BYTE_ALPHABET_SIZE + 2) * 4;
+        }
+        if (maxOrder >= DIRECT_ORDERS) {
+            resetLists();
+            memory += (long) sizes.length * CONTEXT_INDEX_SIZE;
+        }
+        if (memoryBudget < memory) {
+            throw new IllegalArgumentException("Memory budget is smaller than the context tables");
+        }
+        fixedMemory = memory;
+        usedMemory = memory;
+        exclusions = new int[UNIFORM_ALPHABET_SIZE];
+        excluded = new int[BYTE_ALPHABET_SIZE];
+        exclusionStamp = 0;
+        history = 0;
+    }
+
+    public void encode(int symbol, RangeEncoder out) throws IOException {
+        if (rawWindows > 0) {
+            out.encode(symbol, 1, UNIFORM_ALPHABET_SIZE);
+            windowCost += orderZeroCost(symbol);
+            update(symbol, Math.min(maxOrder, DIRECT_ORDERS - 1), 0);
+            return;
+        }
+        exclusionStamp++;
+        excludedCount = 0;
+        for (int order = maxOrder; order >= 0; order--) {
+            boolean found = order < DIRECT_ORDERS ? encodeDirect(order, symbol, out) : encodeList(order, symbol, out);
+            if (found) {
+                update(symbol, maxOrder, order);
+                return;
+            }
+        }
+        out.encode(symbol, 1, UNIFORM_ALPHABET_SIZE);
+        windowCost += COSTS[UNIFORM_ALPHABET_SIZE];
+        update(symbol, maxOrder, 0);
+    }
+
+    public int decode(RangeDecoder in) throws IOException {
+        if (rawWindows > 0) {
+            int symbol = decodeUniform(in);
+            windowCost += orderZeroCost(symbol);
+            update(symbol, Math.min(maxOrder, DIRECT_ORDERS - 1), 0);
+            return symbol;
+        }
+        exclusionStamp++;
+        excludedCount = 0;
+        for (int order = maxOrder; order >= 0; order--) {
+            int symbol = order < DIRECT_ORDERS ? decodeDirect(order, in) : decodeList(order, in);
+            if (symbol >= 0) {
+                update(symbol, maxOrder, order);
+                return symbol;
+            }
+        }
+        int symbol = decodeUniform(in);
+        windowCost += COSTS[UNIFORM_ALPHABET_SIZE];
+        update(symbol, maxOrder, 0);
+        return symbol;
+    }
+
+    private boolean encodeList(int order, int symbol, RangeEncoder out) throws IOException {
+        int context = context(order);
+        int size = sizes[context];
+        byte[] contextSymbols = symbols[context];
+        int[] contextFrequencies = frequencies[context];
+        int total = 0;
+        int found = -1;
+        int foundStart = 0;
+        int excludedBefore = excludedCount;
+        for (int i = 0; i < size; i++) {
+            int s = contextSymbols[i] & 0xFF;
+            if (exclusions[s] != exclusionStamp) {
+                if (s == symbol) {
+                    found = i;
+                    foundStart = total;
+                }
+                total += contextFrequencies[i];
+                exclude(s);
+            }
+        }
+        int distinct = excludedCount - excludedBefore;
+        if (distinct == 0) {
+            return false;
+        }
+        if (found >= 0) {
+            out.encode(foundStart, contextFrequencies[found], total + distinct);
+            windowCost += COSTS[total + distinct] - COSTS[contextFrequencies[found]];
+            return true;
+        }
+        out.encode(total, distinct, total + distinct);
+        windowCost += COSTS[total + distinct] - COSTS[distinct];
+        return false;
+    }
+
+    private int decodeList(int order, RangeDecoder in) throws IOException {
+        int context = context(order);
+        int size = sizes[context];
+        byte[] contextSymbols = symbols[context];
+        int[] contextFrequencies = frequencies[context];
+        int total = 0;
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (exclusions[contextSymbols[i] & 0xFF] != exclusionStamp) {
+                total += contextFrequencies[i];
+                distinct++;
+            }
+        }
+        if (distinct == 0) {
+            return -1;
+        }
+        int value = in.getFrequency(total + distinct);
+        int start = 0;
+        for (int i = 0; i < size; i++) {
+            int s = contextSymbols[i] & 0xFF;
+            if (exclusions[s] != exclusionStamp) {
+                if (value < start + contextFrequencies[i]) {
+                    in.decode(start, contextFrequencies[i]);
+                    windowCost += COSTS[total + distinct] - COSTS[contextFrequencies[i]];
+                    return s;
+                }
+                start += contextFrequencies[i];
+                exclude(s);
+            }
+        }
+        in.decode(total, distinct);
+        windowCost += COSTS[total + distinct] - COSTS[distinct];
+        return -1;
+    }
+
+    private boolean encodeDirect(int order, int symbol, RangeEncoder out) throws IOException {
+        int context = context(order);
+        int[] orderCounts = counts[order];
+        int base = context * BYTE_ALPHABET_SIZE;
+        int total = directTotals[order][context];
+        int distinct = directDistinct[order][context];
+        for (int i = 0; i < excludedCount; i++) {
+            int frequency = orderCounts[base + excluded[i]];
+            if (frequency > 0) {
+                total -= frequency;
+                distinct--;
+            }
+        }
+        if (distinct == 0) {
+            return false;
+        }
+        int frequency = symbol == END_OF_STREAM ? 0 : orderCounts[base + symbol];
+        if (frequency > 0) {
+            // The symbol itself is never excluded, it would have been found in a longer context
+            int start = 0;
+            for (int s = 0; s < symbol; s++) {
+                start += orderCounts[base + s];
+            }
+            for (int i = 0; i < excludedCount; i++) {
+                if (excluded[i] < symbol) {
+                    start -= orderCounts[base + excluded[i]];
+                }
+            }
+            out.encode(start, frequency, total + distinct);
+            windowCost += COSTS[total + distinct] - COSTS[frequency];
+            return true;
+        }
+        out.encode(total, distinct, total + distinct);
+        windowCost += COSTS[total + distinct] - COSTS[distinct];
+        excludeContext(order, base);
+        return false;
+    }
+
+    private int decodeDirect(int order, RangeDecoder in) throws IOException {
+        int context = context(order);
+        int[] orderCounts = counts[order];
+        int base = context * BYTE_ALPHABET_SIZE;
+        int total = directTotals[order][context];
+        int distinct = directDistinct[order][context];
+        for (int i = 0; i < excludedCount; i++) {
+            int frequency = orderCounts[base + excluded[i]];
+            if (frequency > 0) {
+                total -= frequency;
+                distinct--;
+            }
+        }
+        if (distinct == 0) {
+            return -1;
+        }
+        int value = in.getFrequency(total + distinct);
+        if (value < total) {
+            int start = 0;
+            for (int s = 0; ; s++) {
+                if (exclusions[s] != exclusionStamp) {
+                    int frequency = orderCounts[base + s];
+                    if (value < start + frequency) {
+                        in.decode(start, frequency);
+                        windowCost += COSTS[total + distinct] - COSTS[frequency];
+                        return s;
+                    }
+                    start += frequency;
+                }
+            }
+        }
+        in.decode(total, distinct);
+        windowCost += COSTS[total + distinct] - COSTS[distinct];
+        excludeContext(order, base);
+        return -1;
+    }
+
+    private int decodeUniform(RangeDecoder in) throws IOException {
+        int symbol = in.getFrequency(UNIFORM_ALPHABET_SIZE);
+        in.decode(symbol, 1);
+        return symbol;
+    }
+
+    // Raw windows only estimate what order 0 would cost, that takes no scan over the context
+    private int orderZeroCost(int symbol) {
+        int total = directTotals[0][0] + directDistinct[0][0];
+        int frequency = symbol == END_OF_STREAM ? 0 : counts[0][symbol];
+        if (frequency > 0) {
+            return COSTS[total] - COSTS[frequency];
+        }
+        return total == 0 ? COSTS[UNIFORM_ALPHABET_SIZE] : COSTS[total] - COSTS[directDistinct[0][0]] + COSTS[UNIFORM_ALPHABET_SIZE];
+    }
+
+    // Order -1 does not use exclusions, so there is nothing to collect after order 0
+    private void excludeContext(int order, int base) {
+        if (order == 0) {
+            return;
+        }
+        int[] orderCounts = counts[order];
+        for (int s = 0; s < BYTE_ALPHABET_SIZE; s++) {
+            if (orderCounts[base + s] > 0 && exclusions[s] != exclusionStamp) {
+                exclude(s);
+            }
+        }
+    }
+
+    private void exclude(int symbol) {
+        exclusions[symbol] = exclusionStamp;
+        excluded[excludedCount++] = symbol;
+    }
+
+    // The symbol is counted in the context it was coded in and added to the longer ones that escaped,
+    // raw windows only count it in the direct-indexed orders
+    private void update(int symbol, int fromOrder, int toOrder) {
+        if (symbol == END_OF_STREAM) {
+            return;
+        }
+        for (int order = fromOrder; order >= toOrder; order--) {
+            if (order < DIRECT_ORDERS) {
+                incrementDirect(order, context(order), symbol);
+            } else {
+                incrementList(context(order), symbol);
+            }
+        }
+        history = ((history << 8) | symbol) & 0xFFFF;
+        if (usedMemory > memoryBudget) {
+            // Start over with empty order 2 contexts, both sides do it at the same point
+            resetLists();
+            usedMemory = fixedMemory;
+        }
+        if (++windowSymbols == WINDOW_SIZE) {
+            endWindow();
+        }
+    }
+
+    // A window that cost more than order -1 would have is followed by raw windows, their number doubles
+    // every time the model fails again and is reset once it wins a window. Raw windows end early when
+    // order 0 alone would clearly beat order -1
+    private void endWindow() {
+        if (rawWindows > 0) {
+            if (windowCost < RAW_WINDOW_COST - RAW_WINDOW_COST / 16) {
+                rawWindows = 0;
+                rawBackoff = 0;
+            } else {
+                rawWindows--;
+            }
+        } else if (windowCost > RAW_WINDOW_COST) {
+            rawBackoff = Math.min(Math.max(rawBackoff * 2, 1), MAX_RAW_WINDOWS);
+            rawWindows = rawBackoff;
+        } else {
+            rawBackoff = 0;
+        }
+        windowSymbols = 0;
+        windowCost = 0L;
+    }
+
+    private void incrementDirect(int order, int context, int symbol) {
+        int[] orderCounts = counts[order];
+        int base = context * BYTE_ALPHABET_SIZE;
+        if (orderCounts[base + symbol]++ == 0) {
+            directDistinct[order][context]++;
+        }
+        if (++directTotals[order][context] > MAX_CONTEXT_TOTAL) {
+            int total = 0;
+            for (int s = base; s < base + BYTE_ALPHABET_SIZE; s++) {
+                orderCounts[s] = (orderCounts[s] + 1) / 2;
+                total += orderCounts[s];
+            }
+            directTotals[order][context] = total;
+        }
+    }
+
+    private void incrementList(int context, int symbol) {
+        byte[] contextSymbols = symbols[context];
+        int size = sizes[context];
+        int index = 0;
+        while (index < size && (contextSymbols[index] & 0xFF) != symbol) {
+            index++;
+        }
+        if (index == size) {
+            if (contextSymbols == null || size == contextSymbols.length) {
+                int capacity = contextSymbols == null ? INITIAL_CAPACITY : contextSymbols.length * 2;
+                byte[] newSymbols = new byte[capacity];
+                int[] newFrequencies = new int[capacity];
+                if (contextSymbols != null) {
+                    System.arraycopy(contextSymbols, 0, newSymbols, 0, size);
+                    System.arraycopy(frequencies[context], 0, newFrequencies, 0, size);
+                    usedMemory -= (long) contextSymbols.length * ENTRY_SIZE;
+                } else {
+                    usedMemory += LIST_OVERHEAD;
+                }
+                usedMemory += (long) capacity * ENTRY_SIZE;
+                symbols[context] = newSymbols;
+                frequencies[context] = newFrequencies;
+            }
+            symbols[context][size] = (byte) symbol;
+            sizes[context] = size + 1;
+        }
+        int[] contextFrequencies = frequencies[context];
+        contextFrequencies[index]++;
+        if (++totals[context] > MAX_CONTEXT_TOTAL) {
+            int total = 0;
+            for (int i = 0; i < sizes[context]; i++) {
+                contextFrequencies[i] = (contextFrequencies[i] + 1) / 2;
+                total += contextFrequencies[i];
+            }
+            totals[context] = total;
+        }
+    }
+
+    private int context(int order) {
+        return history & ((1 << (8 * order)) - 1);
+    }
+
+    private void resetLists() {
+        int contextCount = 1 << (8 * DIRECT_ORDERS);
+        symbols = new byte[contextCount][];
+        frequencies = new int[contextCount][];
+        sizes = new int[contextCount];
+        totals = new int[contextCount];
+    }
+
+}
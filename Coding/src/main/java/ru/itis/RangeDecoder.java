@@ -0,0 +1,51 @@
+package ru.itis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class RangeDecoder implements Closeable {
+
+    private static final long TOP = 1L << 24;
+    private static final long MASK = 0xFFFFFFFFL;
+
+    private final InputStream in;
+    private long code;
+    private long range;
+    private long step;
+
+    public RangeDecoder(InputStream in) throws IOException {
+        this.in = in;
+        code = 0L;
+        range = MASK;
+        for (int i = 0; i < 5; i++) {
+            code = ((code << 8) | readByte()) & MASK;
+        }
+    }
+
+    // Must be followed by decode() with the interval of the symbol the returned value falls into
+    public int getFrequency(int totalFrequency) {
+        step = range / totalFrequency;
+        return (int) Math.min(code / step, totalFrequency - 1);
+    }
+
+    public void decode(int cumulativeFrequency, int frequency) throws IOException {
+        code -= step * cumulativeFrequency;
+        range = step * frequency;
+        while (range < TOP) {
+            code = ((code << 8) | readByte()) & MASK;
+            range <<= 8;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        return b == -1 ? 0 : b;
+    }
+
+}
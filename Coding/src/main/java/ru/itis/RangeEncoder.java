@@ -0,0 +1,62 @@
+package ru.itis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Range coder with a 32-bit range, byte-wise renormalization and delayed carry propagation
+public class RangeEncoder implements Closeable {
+
+    public static final int MAX_TOTAL_FREQUENCY = (1 << 16) - 1;
+    private static final long TOP = 1L << 24;
+    private static final long MASK = 0xFFFFFFFFL;
+
+    private final OutputStream out;
+    // Low has one extra bit above the 32-bit window to catch the carry
+    private long low;
+    private long range;
+    // Last byte that may still be changed by a carry, followed by cacheSize - 1 bytes of 0xFF
+    private int cache;
+    private long cacheSize;
+
+    public RangeEncoder(OutputStream out) {
+        this.out = out;
+        low = 0L;
+        range = MASK;
+        cache = 0;
+        cacheSize = 1;
+    }
+
+    public void encode(int cumulativeFrequency, int frequency, int totalFrequency) throws IOException {
+        long r = range / totalFrequency;
+        low += r * cumulativeFrequency;
+        range = r * frequency;
+        while (range < TOP) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            shiftLow();
+        }
+        out.close();
+    }
+
+    private void shiftLow() throws IOException {
+        if (low < 0xFF000000L || low > MASK) {
+            int carry = (int) (low >>> 32);
+            int b = cache;
+            do {
+                out.write((b + carry) & 0xFF);
+                b = 0xFF;
+            } while (--cacheSize != 0);
+            cache = (int) ((low >>> 24) & 0xFF);
+        }
+        cacheSize++;
+        low = (low & 0x00FFFFFFL) << 8;
+    }
+
+}
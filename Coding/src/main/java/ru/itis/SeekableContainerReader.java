@@ -0,0 +1,157 @@
+package ru.itis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Read-only channel over the decoded content of a container: a read decodes only the blocks covering the requested
+// range, found through the block index, and keeps the last cacheSize decoded blocks in an LRU cache
+public class SeekableContainerReader implements SeekableByteChannel {
+
+    private static final int DEFAULT_CACHE_SIZE = 16;
+
+    private final ContainerReader reader;
+    private final Codec decoder;
+    private final List<ContainerBlock> blocks;
+    // starts[i] is the position of the first byte of block i, starts[blocks.size()] is the size
+    private final long[] starts;
+    private final LinkedHashMap<Integer, byte[]> cache;
+    private long position;
+    private boolean open;
+
+    public SeekableContainerReader(String codeFilePath) throws IOException {
+        this(codeFilePath, DEFAULT_CACHE_SIZE);
+    }
+
+    public SeekableContainerReader(String codeFilePath, int cacheSize) throws IOException {
+        reader = new ContainerReader(codeFilePath);
+        decoder = reader.getCodec().create(reader.getParameter());
+        blocks = reader.getBlocks();
+        starts = new long[blocks.size() + 1];
+        for (int i = 0; i < blocks.size(); i++) {
+            starts[i + 1] = starts[i] + blocks.get(i).getRawSize();
+        }
+        int capacity = Math.max(cacheSize, 1);
+        cache = new LinkedHashMap<Integer, byte[]>(2 * capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > capacity;
+            }
+        };
+        open = true;
+    }
+
+    // Reads up to length bytes starting at position without moving the channel position, -1 past the end
+    public synchronized int read(long position, byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        if (position >= size()) {
+            return length == 0 ? 0 : -1;
+        }
+        int read = 0;
+        int blockIndex = findBlock(position);
+        while (read < length && blockIndex < blocks.size()) {
+            byte[] block = decodedBlock(blockIndex);
+            int start = (int) (position + read - starts[blockIndex]);
+            int count = Math.min(length - read, block.length - start);
+            System.arraycopy(block, start, bytes, offset + read, count);
+            read += count;
+            blockIndex++;
+        }
+        return read;
+    }
+
+    public byte[] read(long position, int length) throws IOException {
+        byte[] bytes = new byte[(int) Math.max(0, Math.min(length, size() - position))];
+        int read = bytes.length == 0 ? 0 : read(position, bytes, 0, bytes.length);
+        return read == bytes.length ? bytes : Arrays.copyOf(bytes, Math.max(read, 0));
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer destination) throws IOException {
+        ensureOpen();
+        byte[] bytes = new byte[(int) Math.min(destination.remaining(), Math.max(0, size() - position))];
+        if (bytes.length == 0) {
+            return destination.hasRemaining() && position >= size() ? -1 : 0;
+        }
+        int read = read(position, bytes, 0, bytes.length);
+        destination.put(bytes, 0, read);
+        position += read;
+        return read;
+    }
+
+    @Override
+    public int write(ByteBuffer source) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() {
+        return starts[blocks.size()];
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (open) {
+            open = false;
+            cache.clear();
+            reader.close();
+        }
+    }
+
+    // Blocks are never empty, so the block holding a position is the last one starting at or before it
+    private int findBlock(long position) {
+        int index = Arrays.binarySearch(starts, 0, blocks.size(), position);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private byte[] decodedBlock(int blockIndex) throws IOException {
+        byte[] block = cache.get(blockIndex);
+        if (block == null) {
+            block = reader.decodeBlock(blockIndex, decoder);
+            cache.put(blockIndex, block);
+        }
+        return block;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+package ru.itis;
+
+import java.util.Arrays;
+
+// Linear time suffix array construction by induced sorting (SA-IS). The end of the text acts as a
+// virtual sentinel that is smaller than every symbol
+public class SuffixArray {
+
+    private SuffixArray() {
+    }
+
+    // Text symbols have to be in [0, alphabetSize)
+    public static int[] build(int[] text, int length, int alphabetSize) {
+        int[] suffixArray = new int[length];
+        induceSort(text, suffixArray, length, alphabetSize);
+        return suffixArray;
+    }
+
+    // Sorted start positions of the cyclic rotations; equal rotations of a periodic text keep an order
+    // that the inverse transform can follow
+    public static int[] buildRotations(int[] text, int length, int alphabetSize) {
+        int[] doubled = new int[2 * length];
+        System.arraycopy(text, 0, doubled, 0, length);
+        System.arraycopy(text, 0, doubled, length, length);
+        int[] suffixArray = build(doubled, doubled.length, alphabetSize);
+        int[] rotations = new int[length];
+        int count = 0;
+        for (int position : suffixArray) {
+            if (position < length) {
+                rotations[count++] = position;
+            }
+        }
+        return rotations;
+    }
+
+    private static void induceSort(int[] text, int[] suffixArray, int n, int alphabetSize) {
+        if (n == 0) {
+            return;
+        }
+        if (n == 1) {
+            suffixArray[0] = 0;
+            return;
+        }
+        // S-type suffixes are smaller than the suffix that follows them, the last one is L-type
+        boolean[] sTypes = new boolean[n];
+        for (int i = n - 2; i >= 0; i--) {
+            sTypes[i] = text[i] < text[i + 1] || (text[i] == text[i + 1] && sTypes[i + 1]);
+        }
+        int[] buckets = new int[alphabetSize];
+        // Sort LMS substrings: put LMS positions at the bucket ends and induce
+        Arrays.fill(suffixArray, -1);
+        bucketEnds(text, n, buckets);
+        for (int i = 1; i < n; i++) {
+            if (isLeftmostS(sTypes, i)) {
+                suffixArray[--buckets[text[i]]] = i;
+            }
+        }
+        induceL(text, suffixArray, sTypes, n, buckets);
+        induceS(text, suffixArray, sTypes, n, buckets);
+        // Collect the sorted LMS positions at the front
+        int lmsCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (isLeftmostS(sTypes, suffixArray[i])) {
+                suffixArray[lmsCount++] = suffixArray[i];
+            }
+        }
+        if (lmsCount == 0) {
+            // Induced sorting from the last suffix alone already produced the answer
+            return;
+        }
+        // Name LMS substrings, equal substrings get equal names
+        Arrays.fill(suffixArray, lmsCount, n, -1);
+        int name = 0;
+        int previous = -1;
+        for (int i = 0; i < lmsCount; i++) {
+            int position = suffixArray[i];
+            boolean different = false;
+            for (int d = 0; ; d++) {
+                if (previous == -1 || position + d == n || previous + d == n
+                        || text[position + d] != text[previous + d] || sTypes[position + d] != sTypes[previous + d]) {
+                    different = true;
+                    break;
+                }
+                if (d > 0 && (isLeftmostS(sTypes, position + d) || isLeftmostS(sTypes, previous + d))) {
+                    break;
+                }
+            }
+            if (different) {
+                name++;
+                previous = position;
+            }
+            suffixArray[lmsCount + (position >> 1)] = name - 1;
+        }
+        int[] reducedText = new int[lmsCount];
+        for (int i = lmsCount, j = 0; i < n; i++) {
+            if (suffixArray[i] >= 0) {
+                reducedText[j++] = suffixArray[i];
+            }
+        }
+        // Sort the reduced problem, recursively if names are not unique yet
+        int[] reducedSuffixArray;
+        if (name < lmsCount) {
+            reducedSuffixArray = build(reducedText, lmsCount, name);
+        } else {
+            reducedSuffixArray = new int[lmsCount];
+            for (int i = 0; i < lmsCount; i++) {
+                reducedSuffixArray[reducedText[i]] = i;
+            }
+        }
+        // Reduced positions back to text positions, then induce the whole array from sorted LMS suffixes
+        for (int i = 1, j = 0; i < n; i++) {
+            if (isLeftmostS(sTypes, i)) {
+                reducedText[j++] = i;
+            }
+        }
+        Arrays.fill(suffixArray, -1);
+        bucketEnds(text, n, buckets);
+        for (int i = lmsCount - 1; i >= 0; i--) {
+            int position = reducedText[reducedSuffixArray[i]];
+            suffixArray[--buckets[text[position]]] = position;
+        }
+        induceL(text, suffixArray, sTypes, n, buckets);
+        induceS(text, suffixArray, sTypes, n, buckets);
+    }
+
+    private static void induceL(int[] text, int[] suffixArray, boolean[] sTypes, int n, int[] buckets) {
+        bucketStarts(text, n, buckets);
+        // The last suffix comes right after the virtual sentinel
+        suffixArray[buckets[text[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; i++) {
+            int j = suffixArray[i] - 1;
+            if (j >= 0 && !sTypes[j]) {
+                suffixArray[buckets[text[j]]++] = j;
+            }
+        }
+    }
+
+    private static void induceS(int[] text, int[] suffixArray, boolean[] sTypes, int n, int[] buckets) {
+        bucketEnds(text, n, buckets);
+        for (int i = n - 1; i >= 0; i--) {
+            int j = suffixArray[i] - 1;
+            if (j >= 0 && sTypes[j]) {
+                suffixArray[--buckets[text[j]]] = j;
+            }
+        }
+    }
+
+    private static void bucketStarts(int[] text, int n, int[] buckets) {
+        Arrays.fill(buckets, 0);
+        for (int i = 0; i < n; i++) {
+            buckets[text[i]]++;
+        }
+        int sum = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            int count = buckets[i];
+            buckets[i] = sum;
+            sum += count;
+        }
+    }
+
+    private static void bucketEnds(int[] text, int n, int[] buckets) {
+        Arrays.fill(buckets, 0);
+        for (int i = 0; i < n; i++) {
+            buckets[text[i]]++;
+        }
+        int sum = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            sum += buckets[i];
+            buckets[i] = sum;
+        }
+    }
+
+    private static boolean isLeftmostS(boolean[] sTypes, int i) {
+        return i > 0 && sTypes[i] && !sTypes[i - 1];
+    }
+
+}
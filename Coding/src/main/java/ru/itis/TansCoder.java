@@ -0,0 +1,251 @@
+package ru.itis;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Table-based asymmetric numeral system coder. Frequencies are normalized to 2^TABLE_LOG and spread
+// over the state table, blocks are encoded backwards so that the decoder reads them forwards.
+// Every block of up to 1 MB carries its own frequencies, so the coder works on streams in one pass;
+// encode/decode over file paths write the same format as the Codec stream methods
+public class TansCoder implements Codec {
+
+    private static final int ALPHABET_SIZE = 256;
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int TABLE_LOG = 12;
+    private static final int TABLE_SIZE = 1 << TABLE_LOG;
+    // A symbol takes at most TABLE_LOG bits, the final state and the marker bit take a few more bytes
+    private static final int MAX_CODE_LENGTH = BLOCK_SIZE * 2 + 16;
+
+    public void encode(String filePath, String codeFilePath) throws IOException {
+        encode(new FileInputStream(filePath), new FileOutputStream(codeFilePath));
+    }
+
+    public void decode(String codeFilePath, String filePath) throws IOException {
+        decode(new FileInputStream(codeFilePath), new FileOutputStream(filePath));
+    }
+
+    // Every block is written as its length, normalized frequencies, code length and code, a zero length ends the stream
+    @Override
+    public void encode(InputStream in, OutputStream codeOut) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(codeOut));
+        byte[] block = new byte[BLOCK_SIZE];
+        byte[] code = new byte[MAX_CODE_LENGTH];
+        int[] stateTable = new int[TABLE_SIZE];
+        int[] deltaNumberOfBits = new int[ALPHABET_SIZE];
+        int[] deltaFindState = new int[ALPHABET_SIZE];
+        int blockLength;
+        while ((blockLength = readBlock(in, block)) > 0) {
+            long[] rates = new long[ALPHABET_SIZE];
+            for (int i = 0; i < blockLength; i++) {
+                rates[block[i] & 0xFF]++;
+            }
+            int[] frequencies = normalizeFrequencies(rates, blockLength);
+            buildEncodingTables(frequencies, stateTable, deltaNumberOfBits, deltaFindState);
+            int codeLength = encodeBlock(block, blockLength, stateTable, deltaNumberOfBits, deltaFindState, code);
+            out.writeInt(blockLength);
+            int symbolCount = ALPHABET_SIZE;
+            while (symbolCount > 0 && frequencies[symbolCount - 1] == 0) {
+                symbolCount--;
+            }
+            out.writeShort(symbolCount);
+            for (int i = 0; i < symbolCount; i++) {
+                out.writeShort(frequencies[i]);
+            }
+            out.writeInt(codeLength);
+            out.write(code, 0, codeLength);
+        }
+        out.writeInt(0);
+        in.close();
+        out.close();
+    }
+
+    @Override
+    public void decode(InputStream codeIn, OutputStream decodedOut) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(codeIn));
+        OutputStream out = new BufferedOutputStream(decodedOut);
+        // The buffer keeps eight spare bytes for whole word reads
+        byte[] code = new byte[MAX_CODE_LENGTH + 8];
+        ByteBuffer words = ByteBuffer.wrap(code).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] block = new byte[BLOCK_SIZE];
+        int blockLength;
+        while ((blockLength = in.readInt()) != 0) {
+            if (blockLength < 0 || blockLength > BLOCK_SIZE) {
+                throw new IOException("Incorrect code file");
+            }
+            int symbolCount = in.readUnsignedShort();
+            if (symbolCount > ALPHABET_SIZE) {
+                throw new IOException("Incorrect code file");
+            }
+            int[] frequencies = new int[ALPHABET_SIZE];
+            int total = 0;
+            for (int i = 0; i < symbolCount; i++) {
+                frequencies[i] = in.readUnsignedShort();
+                total += frequencies[i];
+            }
+            if (total != TABLE_SIZE) {
+                throw new IOException("Incorrect code file");
+            }
+            int codeLength = in.readInt();
+            if (codeLength <= 0 || codeLength > MAX_CODE_LENGTH) {
+                throw new IOException("Incorrect code file");
+            }
+            in.readFully(code, 0, codeLength);
+            decodeBlock(code, codeLength, words, buildDecodingTable(frequencies), block, blockLength);
+            out.write(block, 0, blockLength);
+        }
+        in.close();
+        out.close();
+    }
+
+    // Encoding tables in the FSE layout: states are kept in [TABLE_SIZE, 2 * TABLE_SIZE)
+    private void buildEncodingTables(int[] frequencies, int[] stateTable, int[] deltaNumberOfBits, int[] deltaFindState) {
+        int[] spread = spreadSymbols(frequencies);
+        int[] cumulativeFrequencies = new int[ALPHABET_SIZE + 1];
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            cumulativeFrequencies[i + 1] = cumulativeFrequencies[i] + frequencies[i];
+        }
+        int[] next = new int[ALPHABET_SIZE];
+        System.arraycopy(cumulativeFrequencies, 0, next, 0, ALPHABET_SIZE);
+        for (int u = 0; u < TABLE_SIZE; u++) {
+            stateTable[next[spread[u]]++] = TABLE_SIZE + u;
+        }
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            int frequency = frequencies[i];
+            if (frequency == 0) {
+                continue;
+            }
+            int maxBitsOut = TABLE_LOG - (frequency == 1 ? 0 : 31 - Integer.numberOfLeadingZeros(frequency - 1));
+            deltaNumberOfBits[i] = (maxBitsOut << 16) - (frequency << maxBitsOut);
+            deltaFindState[i] = cumulativeFrequencies[i] - frequency;
+        }
+    }
+
+    // Every decoding entry packs (next state base << 16 | number of bits << 8 | symbol)
+    private int[] buildDecodingTable(int[] frequencies) {
+        int[] spread = spreadSymbols(frequencies);
+        int[] table = new int[TABLE_SIZE];
+        int[] next = frequencies.clone();
+        for (int u = 0; u < TABLE_SIZE; u++) {
+            int symbol = spread[u];
+            int x = next[symbol]++;
+            int numberOfBits = TABLE_LOG - (31 - Integer.numberOfLeadingZeros(x));
+            table[u] = (((x << numberOfBits) - TABLE_SIZE) << 16) | (numberOfBits << 8) | symbol;
+        }
+        return table;
+    }
+
+    private int encodeBlock(byte[] block, int blockLength, int[] stateTable, int[] deltaNumberOfBits, int[] deltaFindState,
+                            byte[] code) {
+        int position = 0;
+        long accumulator = 0L;
+        int bitCount = 0;
+        int state = TABLE_SIZE;
+        for (int i = blockLength - 1; i >= 0; i--) {
+            int symbol = block[i] & 0xFF;
+            int numberOfBits = (state + deltaNumberOfBits[symbol]) >>> 16;
+            accumulator |= (long) (state & ((1 << numberOfBits) - 1)) << bitCount;
+            bitCount += numberOfBits;
+            state = stateTable[(state >>> numberOfBits) + deltaFindState[symbol]];
+            if (bitCount >= 32) {
+                code[position++] = (byte) accumulator;
+                code[position++] = (byte) (accumulator >>> 8);
+                code[position++] = (byte) (accumulator >>> 16);
+                code[position++] = (byte) (accumulator >>> 24);
+                accumulator >>>= 32;
+                bitCount -= 32;
+            }
+        }
+        // Final state and a marker bit that shows the decoder where the stream ends
+        accumulator |= (long) (state - TABLE_SIZE) << bitCount;
+        bitCount += TABLE_LOG;
+        accumulator |= 1L << bitCount;
+        bitCount++;
+        while (bitCount > 0) {
+            code[position++] = (byte) accumulator;
+            accumulator >>>= 8;
+            bitCount -= 8;
+        }
+        return position;
+    }
+
+    private void decodeBlock(byte[] code, int codeLength, ByteBuffer words, int[] table, byte[] block, int blockLength)
+            throws IOException {
+        int last = code[codeLength - 1] & 0xFF;
+        if (last == 0) {
+            throw new IOException("Incorrect code file");
+        }
+        // Bits are read backwards starting right below the marker bit
+        int bitPosition = (codeLength - 1) * 8 + (31 - Integer.numberOfLeadingZeros(last)) - TABLE_LOG;
+        if (bitPosition < 0) {
+            throw new IOException("Incorrect code file");
+        }
+        int state = (int) (words.getLong(bitPosition >>> 3) >>> (bitPosition & 7)) & (TABLE_SIZE - 1);
+        for (int i = 0; i < blockLength; i++) {
+            int entry = table[state];
+            block[i] = (byte) entry;
+            int numberOfBits = (entry >>> 8) & 0xFF;
+            bitPosition -= numberOfBits;
+            if (bitPosition < 0) {
+                throw new IOException("Incorrect code file");
+            }
+            long word = words.getLong(bitPosition >>> 3);
+            state = (entry >>> 16) + (int) ((word >>> (bitPosition & 7)) & ((1L << numberOfBits) - 1));
+        }
+        if (bitPosition != 0) {
+            throw new IOException("Incorrect code file");
+        }
+    }
+
+    // Scales rates so that they sum up to TABLE_SIZE, every present symbol keeps a non-zero frequency
+    private int[] normalizeFrequencies(long[] rates, long bytes) {
+        int[] frequencies = new int[ALPHABET_SIZE];
+        if (bytes == 0) {
+            return frequencies;
+        }
+        int sum = 0;
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            if (rates[i] > 0) {
+                frequencies[i] = (int) Math.max(1, (rates[i] * TABLE_SIZE + bytes / 2) / bytes);
+                sum += frequencies[i];
+            }
+        }
+        // Rounding leftovers go to or come from the largest frequencies
+        while (sum != TABLE_SIZE) {
+            int largest = 0;
+            for (int i = 1; i < ALPHABET_SIZE; i++) {
+                if (frequencies[i] > frequencies[largest]) {
+                    largest = i;
+                }
+            }
+            int change = sum < TABLE_SIZE ? TABLE_SIZE - sum : -Math.min(sum - TABLE_SIZE, frequencies[largest] / 2);
+            frequencies[largest] += change;
+            sum += change;
+        }
+        return frequencies;
+    }
+
+    // Scatters the symbols over the table with an odd step, so that every symbol is spread evenly
+    private int[] spreadSymbols(int[] frequencies) {
+        int[] spread = new int[TABLE_SIZE];
+        int step = (TABLE_SIZE >>> 1) + (TABLE_SIZE >>> 3) + 3;
+        int position = 0;
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            for (int j = 0; j < frequencies[i]; j++) {
+                spread[position] = i;
+                position = (position + step) & (TABLE_SIZE - 1);
+            }
+        }
+        return spread;
+    }
+
+    private int readBlock(InputStream in, byte[] block) throws IOException {
+        int length = 0;
+        int read;
+        while (length < block.length && (read = in.read(block, length, block.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+}
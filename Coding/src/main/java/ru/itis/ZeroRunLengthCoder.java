@@ -0,0 +1,82 @@
+package ru.itis;
+
+import java.io.IOException;
+
+// bzip2 style run-length coding of move-to-front output: a run of zeros is written in bijective base 2
+// with the digits RUN_A (1) and RUN_B (2), other indices are shifted up by one and END_OF_BLOCK closes the block
+public class ZeroRunLengthCoder {
+
+    public static final int RUN_A = 0;
+    public static final int RUN_B = 1;
+    public static final int END_OF_BLOCK = 257;
+    public static final int ALPHABET_SIZE = 258;
+
+    private ZeroRunLengthCoder() {
+    }
+
+    // Symbols need room for length + 1 values, returns the number of written symbols
+    public static int encode(byte[] indices, int length, int[] symbols) {
+        int count = 0;
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            int index = indices[i] & 0xFF;
+            if (index == 0) {
+                run++;
+                continue;
+            }
+            if (run > 0) {
+                count = writeRun(run, symbols, count);
+                run = 0;
+            }
+            symbols[count++] = index + 1;
+        }
+        if (run > 0) {
+            count = writeRun(run, symbols, count);
+        }
+        symbols[count++] = END_OF_BLOCK;
+        return count;
+    }
+
+    // Returns the number of restored indices
+    public static int decode(int[] symbols, int count, byte[] indices) throws IOException {
+        int length = 0;
+        int run = 0;
+        int weight = 1;
+        for (int i = 0; i < count; i++) {
+            int symbol = symbols[i];
+            if (symbol == RUN_A || symbol == RUN_B) {
+                run += symbol == RUN_A ? weight : 2 * weight;
+                weight <<= 1;
+                if (run > indices.length - length) {
+                    throw new IOException("Incorrect code file");
+                }
+                continue;
+            }
+            for (int j = 0; j < run; j++) {
+                indices[length++] = 0;
+            }
+            run = 0;
+            weight = 1;
+            if (symbol == END_OF_BLOCK) {
+                return length;
+            }
+            if (length == indices.length) {
+                throw new IOException("Incorrect code file");
+            }
+            indices[length++] = (byte) (symbol - 1);
+        }
+        throw new IOException("Incorrect code file");
+    }
+
+    private static int writeRun(int run, int[] symbols, int count) {
+        run--;
+        while (true) {
+            symbols[count++] = (run & 1) == 0 ? RUN_A : RUN_B;
+            if (run < 2) {
+                return count;
+            }
+            run = (run - 2) >>> 1;
+        }
+    }
+
+}